@@ -0,0 +1,83 @@
+package net.fuzzyhome.home.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.EnumMap;
+import java.util.Locale;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.boot.transaction.autoconfigure.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+/**
+ * Gives every {@link Workload} a connection pool of its own, a bulkhead that keeps long-running imports and exports
+ * from taking the connections of interactive requests. Each pool starts out with the {@code spring.datasource.hikari}
+ * settings, which are then overridden by those under {@code app.datasource.pools.<workload>}. The pool of
+ * {@link Workload#READ} connects to the replica configured in {@link ReplicaDataSourceProperties}, if any, all others
+ * to the primary. The pools report their metrics under their workload's name.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class DataSourceConfig {
+
+    private final DataSourceProperties dataSourceProperties;
+    private final Environment environment;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ReplicaDataSourceProperties replicaDataSourceProperties;
+
+    @Bean
+    WorkloadRoutingDataSource dataSource() {
+        final var pools = new EnumMap<Workload, HikariDataSource>(Workload.class);
+        for (final var workload : Workload.values()) {
+            pools.put(workload, createPool(workload));
+        }
+        return new WorkloadRoutingDataSource(pools);
+    }
+
+    /**
+     * Replaces Boot's transaction manager, so the {@code spring.transaction} properties and other customizers are
+     * applied here as they would be to Boot's.
+     */
+    @Bean
+    JpaTransactionManager transactionManager(
+        @NonNull final ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers
+    ) {
+        final var transactionManager = new WorkloadJpaTransactionManager();
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @NonNull
+    private HikariDataSource createPool(@NonNull final Workload workload) {
+        final var name = workload.name().toLowerCase(Locale.ROOT);
+        final var dataSource = dataSourceProperties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+        if (workload == Workload.READ && replicaDataSourceProperties.getUrl() != null) {
+            dataSource.setJdbcUrl(replicaDataSourceProperties.getUrl());
+            if (replicaDataSourceProperties.getUsername() != null) {
+                dataSource.setUsername(replicaDataSourceProperties.getUsername());
+            }
+            if (replicaDataSourceProperties.getPassword() != null) {
+                dataSource.setPassword(replicaDataSourceProperties.getPassword());
+            }
+            // Guards against writes that slip through as well as against a misconfigured replica URL pointing to the
+            // primary.
+            dataSource.setReadOnly(true);
+        }
+
+        final var binder = Binder.get(environment);
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        binder.bind("app.datasource.pools." + name, Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        meterRegistry.ifAvailable(dataSource::setMetricRegistry);
+        return dataSource;
+    }
+}
@@ -0,0 +1,19 @@
+package net.fuzzyhome.home.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * How long idempotency keys are kept, how often expired ones are purged and how many of the most recently used ones
+ * are also kept in memory.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.idempotency")
+@Data
+public class IdempotencyProperties {
+    private Duration timeToLive = Duration.ofHours(24);
+    private Duration purgeInterval = Duration.ofHours(1);
+    private int cacheSize = 10_000;
+}
@@ -0,0 +1,15 @@
+package net.fuzzyhome.home.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * When enabled, ingredient reads return JSON assembled by PostgreSQL instead of mapping rows to DTOs.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.ingredients.json-aggregation")
+@Data
+public class JsonAggregationProperties {
+    private boolean enabled = false;
+}
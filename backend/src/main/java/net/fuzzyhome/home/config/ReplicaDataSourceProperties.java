@@ -0,0 +1,22 @@
+package net.fuzzyhome.home.config;
+
+import lombok.Data;
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection to a read replica of the database. Read-only transactions are only routed to it if a URL is set, user and
+ * password default to those of the primary.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.datasource.replica")
+@Data
+public class ReplicaDataSourceProperties {
+    @Nullable
+    private String url;
+    @Nullable
+    private String username;
+    @Nullable
+    private String password;
+}
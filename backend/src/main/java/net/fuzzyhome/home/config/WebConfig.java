@@ -4,10 +4,13 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.Arrays;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.fuzzyhome.home.rest.IngredientsApiImpl;
 import org.springframework.boot.jackson.autoconfigure.JsonMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.jspecify.annotations.NonNull;
+import org.openapitools.jackson.nullable.JsonNullableJackson3Module;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -20,10 +23,12 @@ public class WebConfig implements WebMvcConfigurer {
 
     @Bean
     JsonMapperBuilderCustomizer jsonMapperBuilderCustomizer() {
-        return builder -> builder.changeDefaultPropertyInclusion(ignored -> JsonInclude.Value.construct(
-            JsonInclude.Include.NON_NULL,
-            JsonInclude.Include.ALWAYS
-        ));
+        // JsonNullable lets the generated patch requests tell absent properties apart from those set to null.
+        return builder -> builder.addModule(new JsonNullableJackson3Module())
+            .changeDefaultPropertyInclusion(ignored -> JsonInclude.Value.construct(
+                JsonInclude.Include.NON_NULL,
+                JsonInclude.Include.ALWAYS
+            ));
     }
 
     @Override
@@ -35,6 +40,11 @@ public class WebConfig implements WebMvcConfigurer {
             );
             final var CorsRegistration = registry.addMapping("/**");
             CorsRegistration.allowedOrigins(webConfigProperties.getAllowedOrigins());
+            CorsRegistration.exposedHeaders(
+                IngredientsApiImpl.NEXT_CURSOR_HEADER,
+                IngredientsApiImpl.TOTAL_COUNT_HEADER,
+                HttpHeaders.ETAG
+            );
         }
     }
 }
@@ -0,0 +1,25 @@
+package net.fuzzyhome.home.config;
+
+/**
+ * Kinds of database work that get a connection pool of their own, so that one of them can never take the connections
+ * the others need.
+ */
+public enum Workload {
+    /**
+     * Read-only transactions of interactive requests.
+     */
+    READ,
+    /**
+     * Read-write transactions of interactive requests, and all work outside of transactions such as migrations.
+     */
+    WRITE,
+    /**
+     * Long-running imports, exports and batches, whether read-only or not. Selected by {@link #BATCH_LABEL}.
+     */
+    BATCH;
+
+    /**
+     * Transaction label that runs a transaction as {@link #BATCH}.
+     */
+    public static final String BATCH_LABEL = "workload:batch";
+}
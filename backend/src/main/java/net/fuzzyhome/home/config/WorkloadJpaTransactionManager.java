@@ -0,0 +1,68 @@
+package net.fuzzyhome.home.config;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+
+/**
+ * Binds the {@link Workload} of each new transaction before its connection is acquired, so the
+ * {@link WorkloadRoutingDataSource} takes the connection from the right pool. Transactions labeled with
+ * {@link Workload#BATCH_LABEL} are batch work, other read-only ones interactive reads and all others interactive
+ * writes. The workload of a suspended transaction, e.g. one suspended by {@code REQUIRES_NEW}, is restored when it
+ * resumes.
+ */
+public class WorkloadJpaTransactionManager extends JpaTransactionManager {
+
+    @Override
+    protected void doBegin(@NonNull final Object transaction, @NonNull final TransactionDefinition definition) {
+        WorkloadRoutingDataSource.bind(determineWorkload(definition));
+        try {
+            super.doBegin(transaction, definition);
+        } catch (final RuntimeException | Error e) {
+            WorkloadRoutingDataSource.unbind();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(@NonNull final Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            WorkloadRoutingDataSource.unbind();
+        }
+    }
+
+    @NonNull
+    @Override
+    protected Object doSuspend(@NonNull final Object transaction) {
+        final var workload = WorkloadRoutingDataSource.current();
+        final var resources = super.doSuspend(transaction);
+        WorkloadRoutingDataSource.unbind();
+        return new SuspendedWorkload(resources, workload);
+    }
+
+    @Override
+    protected void doResume(@Nullable final Object transaction, @NonNull final Object suspendedResources) {
+        final var suspended = (SuspendedWorkload) suspendedResources;
+        super.doResume(transaction, suspended.resources());
+        final var workload = suspended.workload();
+        if (workload != null) {
+            WorkloadRoutingDataSource.bind(workload);
+        }
+    }
+
+    @NonNull
+    private static Workload determineWorkload(@NonNull final TransactionDefinition definition) {
+        if (definition instanceof final TransactionAttribute attribute
+            && attribute.getLabels().contains(Workload.BATCH_LABEL)) {
+            return Workload.BATCH;
+        }
+        return definition.isReadOnly() ? Workload.READ : Workload.WRITE;
+    }
+
+    private record SuspendedWorkload(@NonNull Object resources, @Nullable Workload workload) {
+    }
+}
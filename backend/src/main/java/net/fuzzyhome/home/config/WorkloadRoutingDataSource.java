@@ -0,0 +1,56 @@
+package net.fuzzyhome.home.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.HashMap;
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections from the pool of the workload bound to the current thread, or from the {@link Workload#WRITE}
+ * pool if none is bound. Owns the pools and closes them when closed itself.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Workload> CURRENT_WORKLOAD = new ThreadLocal<>();
+
+    private final Map<Workload, HikariDataSource> pools;
+
+    public WorkloadRoutingDataSource(@NonNull final Map<Workload, HikariDataSource> pools) {
+        this.pools = Map.copyOf(pools);
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(Workload.WRITE));
+        setLenientFallback(false);
+    }
+
+    /**
+     * Binds the workload to the current thread until {@link #unbind()} is called.
+     */
+    public static void bind(@NonNull final Workload workload) {
+        CURRENT_WORKLOAD.set(workload);
+    }
+
+    public static void unbind() {
+        CURRENT_WORKLOAD.remove();
+    }
+
+    /**
+     * Returns the workload bound to the current thread, if any.
+     */
+    @Nullable
+    public static Workload current() {
+        return CURRENT_WORKLOAD.get();
+    }
+
+    @Nullable
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT_WORKLOAD.get();
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
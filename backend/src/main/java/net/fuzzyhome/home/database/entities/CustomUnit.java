@@ -5,14 +5,13 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import java.util.Objects;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
@@ -21,11 +20,18 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import net.fuzzyhome.home.database.enums.GenericUnit;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
 @AllArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity
 @Getter
 @NoArgsConstructor
@@ -39,11 +45,15 @@ import org.jspecify.annotations.Nullable;
 )
 public class CustomUnit {
     @Column(nullable = false)
-    @GeneratedValue(strategy = GenerationType.UUID)
     @Id
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     @Nullable
     private UUID id;
 
+    @Column(nullable = false)
+    @Version
+    private long version;
+
     @Column(nullable = false)
     @NonNull
     private String name;
@@ -51,12 +61,15 @@ public class CustomUnit {
     @Nullable
     private Double customUnitToConversionUnitFactor;
 
+    @Column(columnDefinition = "generic_unit")
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Nullable
     private GenericUnit conversionUnit;
 
     @JoinColumn(nullable = false)
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @Nullable
     private Ingredient ingredient;
 
@@ -6,12 +6,11 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -22,11 +21,16 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import net.fuzzyhome.home.database.enums.VolumeUnit;
 import net.fuzzyhome.home.database.enums.WeightUnit;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
 @AllArgsConstructor
 @Builder
+@DynamicUpdate
 @Entity
 @Getter
 @NoArgsConstructor
@@ -38,11 +42,15 @@ import org.jspecify.annotations.Nullable;
 )
 public class Ingredient {
     @Column(nullable = false)
-    @GeneratedValue(strategy = GenerationType.UUID)
     @Id
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     @Nullable
     private UUID id;
 
+    @Column(nullable = false)
+    @Version
+    private long version;
+
     @NonNull
     @Column(nullable = false, unique = true)
     private String name;
@@ -50,20 +58,24 @@ public class Ingredient {
     @Nullable
     private Double weightToVolumeConversionFactor;
 
+    @Column(columnDefinition = "weight_unit")
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Nullable
     private WeightUnit conversionWeightUnit;
 
+    @Column(columnDefinition = "volume_unit")
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Nullable
     private VolumeUnit conversionVolumeUnit;
 
     @Nullable
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "ingredient", orphanRemoval = true)
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "ingredient", orphanRemoval = true)
     private List<IngredientVariant> ingredientVariants;
 
     @Nullable
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "ingredient", orphanRemoval = true)
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "ingredient", orphanRemoval = true)
     private List<CustomUnit> customUnits;
 
     @Override
@@ -0,0 +1,16 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.util.UUID;
+import net.fuzzyhome.home.database.entities.CustomUnit;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An existing ingredient together with the requested custom unit, which is {@code null} if the custom unit does not
+ * belong to the ingredient.
+ */
+public record CustomUnitLookup(
+    @NonNull UUID ingredientId,
+    @Nullable CustomUnit customUnit
+) {
+}
@@ -0,0 +1,19 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.util.UUID;
+import net.fuzzyhome.home.database.enums.GenericUnit;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Read-only view of a custom unit row.
+ */
+public record CustomUnitProjection(
+    @NonNull UUID id,
+    long version,
+    @NonNull UUID ingredientId,
+    @NonNull String name,
+    @Nullable Double customUnitToConversionUnitFactor,
+    @Nullable GenericUnit conversionUnit
+) {
+}
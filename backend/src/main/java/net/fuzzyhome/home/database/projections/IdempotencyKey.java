@@ -0,0 +1,15 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.time.OffsetDateTime;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A stored idempotency key. The response is only missing while the transaction that claimed the key is still running.
+ */
+public record IdempotencyKey(
+    @NonNull String requestHash,
+    byte @Nullable [] response,
+    @NonNull OffsetDateTime createdAt
+) {
+}
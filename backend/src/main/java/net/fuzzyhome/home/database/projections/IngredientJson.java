@@ -0,0 +1,16 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.util.UUID;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * An ingredient rendered as {@code IngredientDto} JSON by the database. Name and id are selected alongside to derive
+ * the cursor of a page, the version to derive the entity tag.
+ */
+public record IngredientJson(
+    @NonNull UUID id,
+    long version,
+    @NonNull String name,
+    byte @NonNull [] json
+) {
+}
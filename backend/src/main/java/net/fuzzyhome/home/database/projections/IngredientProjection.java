@@ -0,0 +1,20 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.util.UUID;
+import net.fuzzyhome.home.database.enums.VolumeUnit;
+import net.fuzzyhome.home.database.enums.WeightUnit;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Read-only view of an ingredient row, without its children.
+ */
+public record IngredientProjection(
+    @NonNull UUID id,
+    long version,
+    @NonNull String name,
+    @Nullable Double weightToVolumeConversionFactor,
+    @Nullable WeightUnit conversionWeightUnit,
+    @Nullable VolumeUnit conversionVolumeUnit
+) {
+}
@@ -0,0 +1,12 @@
+package net.fuzzyhome.home.database.projections;
+
+import org.jspecify.annotations.NonNull;
+
+/**
+ * An ingredient row as left behind by an upsert, and whether the upsert inserted it rather than updated it.
+ */
+public record IngredientUpsert(
+    @NonNull IngredientProjection ingredient,
+    boolean inserted
+) {
+}
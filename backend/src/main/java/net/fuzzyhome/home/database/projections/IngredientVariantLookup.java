@@ -0,0 +1,16 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.util.UUID;
+import net.fuzzyhome.home.database.entities.IngredientVariant;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An existing ingredient together with the requested variant, which is {@code null} if the variant does not belong to
+ * the ingredient.
+ */
+public record IngredientVariantLookup(
+    @NonNull UUID ingredientId,
+    @Nullable IngredientVariant ingredientVariant
+) {
+}
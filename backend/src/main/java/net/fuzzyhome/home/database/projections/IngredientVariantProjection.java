@@ -0,0 +1,27 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.util.UUID;
+import net.fuzzyhome.home.database.enums.GenericUnit;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Read-only view of an ingredient variant row.
+ */
+public record IngredientVariantProjection(
+    @NonNull UUID id,
+    long version,
+    @NonNull UUID ingredientId,
+    @NonNull String description,
+    @NonNull Boolean defaultVariant,
+    @Nullable GenericUnit unit,
+    @Nullable Double servingSize,
+    @Nullable Double calories,
+    @Nullable Double carbohydrate,
+    @Nullable Double fat,
+    @Nullable Double protein,
+    @Nullable Double saturatedFat,
+    @Nullable Double sodium,
+    @Nullable Double sugar
+) {
+}
@@ -0,0 +1,15 @@
+package net.fuzzyhome.home.database.projections;
+
+import java.util.UUID;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * The version of an ingredient row, which is all that is needed to tell whether a client still has the current state
+ * of the ingredient or a page of them. The name is selected alongside to derive the cursor of a page.
+ */
+public record IngredientVersion(
+    @NonNull UUID id,
+    long version,
+    @NonNull String name
+) {
+}
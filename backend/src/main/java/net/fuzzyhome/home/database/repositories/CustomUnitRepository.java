@@ -4,13 +4,36 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import net.fuzzyhome.home.database.entities.CustomUnit;
+import net.fuzzyhome.home.database.projections.CustomUnitLookup;
 import org.jspecify.annotations.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface CustomUnitRepository extends JpaRepository<@NonNull CustomUnit, @NonNull UUID> {
     @NonNull List<CustomUnit> findAllByIngredientId(@NonNull UUID ingredientId);
 
-    @NonNull Optional<CustomUnit> findByIdAndIngredientId(
+    /**
+     * Resolves the ingredient and the custom unit in a single query. Empty if the ingredient does not exist.
+     */
+    @NonNull
+    @Query(
+        "SELECT new net.fuzzyhome.home.database.projections.CustomUnitLookup(i.id, c) FROM Ingredient i "
+            + "LEFT JOIN CustomUnit c ON c.ingredient = i AND c.id = :id WHERE i.id = :ingredientId"
+    )
+    Optional<CustomUnitLookup> lookupByIdAndIngredientId(
+        @NonNull UUID id,
+        @NonNull UUID ingredientId
+    );
+
+    /**
+     * Deletes the custom unit if it belongs to the ingredient.
+     *
+     * @return the number of deleted rows, {@code 0} if the custom unit does not belong to the ingredient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CustomUnit c WHERE c.id = :id AND c.ingredient.id = :ingredientId")
+    int deleteByIdAndIngredientId(
         @NonNull UUID id,
         @NonNull UUID ingredientId
     );
@@ -0,0 +1,95 @@
+package net.fuzzyhome.home.database.repositories;
+
+import java.time.Duration;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import net.fuzzyhome.home.database.projections.IdempotencyKey;
+import org.jspecify.annotations.NonNull;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Idempotency keys of create requests, scoped by the operation they were sent to. A key expires after its time to live,
+ * after which it can be claimed again and is eventually purged.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private static final RowMapper<IdempotencyKey> IDEMPOTENCY_KEY_ROW_MAPPER =
+        new DataClassRowMapper<>(IdempotencyKey.class);
+
+    private final JdbcClient jdbcClient;
+
+    /**
+     * Claims the key for the current transaction, unless it is already taken and not yet expired. If another
+     * transaction claimed the key but has not finished yet, this waits for it, so a key is never claimed twice and a
+     * key that was not claimed always has a response once that transaction committed.
+     *
+     * @return whether the key was claimed
+     */
+    public boolean claim(
+        @NonNull final String scope,
+        @NonNull final String key,
+        @NonNull final String requestHash,
+        @NonNull final Duration timeToLive
+    ) {
+        return jdbcClient.sql("""
+                INSERT INTO idempotency_key AS k (scope, idempotency_key, request_hash)
+                VALUES (:scope, :key, :requestHash)
+                ON CONFLICT (scope, idempotency_key) DO UPDATE
+                    SET request_hash = EXCLUDED.request_hash,
+                        response = NULL,
+                        created_at = now()
+                    WHERE k.created_at < now() - make_interval(secs => :timeToLive)
+                """)
+            .param("scope", scope)
+            .param("key", key)
+            .param("requestHash", requestHash)
+            .param("timeToLive", timeToLive.toSeconds())
+            .update() > 0;
+    }
+
+    public void saveResponse(
+        @NonNull final String scope,
+        @NonNull final String key,
+        final byte @NonNull [] response
+    ) {
+        jdbcClient.sql("""
+                UPDATE idempotency_key
+                SET response = :response
+                WHERE scope = :scope AND idempotency_key = :key
+                """)
+            .param("scope", scope)
+            .param("key", key)
+            .param("response", response)
+            .update();
+    }
+
+    @NonNull
+    public Optional<IdempotencyKey> find(@NonNull final String scope, @NonNull final String key) {
+        return jdbcClient.sql("""
+                SELECT request_hash, response, created_at
+                FROM idempotency_key
+                WHERE scope = :scope AND idempotency_key = :key
+                """)
+            .param("scope", scope)
+            .param("key", key)
+            .query(IDEMPOTENCY_KEY_ROW_MAPPER)
+            .optional();
+    }
+
+    /**
+     * @return the number of purged keys
+     */
+    public int deleteExpired(@NonNull final Duration timeToLive) {
+        return jdbcClient.sql("""
+                DELETE FROM idempotency_key
+                WHERE created_at < now() - make_interval(secs => :timeToLive)
+                """)
+            .param("timeToLive", timeToLive.toSeconds())
+            .update();
+    }
+}
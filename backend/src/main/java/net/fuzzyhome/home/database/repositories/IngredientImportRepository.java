@@ -0,0 +1,247 @@
+package net.fuzzyhome.home.database.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import net.fuzzyhome.home.database.entities.CustomUnit;
+import net.fuzzyhome.home.database.entities.Ingredient;
+import net.fuzzyhome.home.database.entities.IngredientVariant;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Bulk import of the ingredient aggregate. Rows are streamed with {@code COPY FROM STDIN} into staging tables, which
+ * carry none of the constraints of their targets, validated there with a few set-based queries and merged into the
+ * target tables in a single statement. The staging tables are dropped on commit, so all steps have to run in the
+ * same transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngredientImportRepository {
+
+    private static final String INGREDIENT_COLUMNS = """
+        id, name, weight_to_volume_conversion_factor, conversion_weight_unit, conversion_volume_unit
+        """;
+
+    private static final String INGREDIENT_VARIANT_COLUMNS = """
+        id, ingredient_id, description, default_variant, unit,
+        serving_size, calories, carbohydrate, fat, protein, saturated_fat, sodium, sugar
+        """;
+
+    private static final String CUSTOM_UNIT_COLUMNS = """
+        id, ingredient_id, name, custom_unit_to_conversion_unit_factor, conversion_unit
+        """;
+
+    /**
+     * Rows are sent to the server in chunks of about this many characters instead of one message per row.
+     */
+    private static final int COPY_CHUNK_SIZE = 64 * 1024;
+
+    private final JdbcClient jdbcClient;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the staging tables with the columns, types and defaults of their targets. Like copies only the not-null
+     * constraints, everything else is left to {@link #findViolations(int)}.
+     */
+    public void createStagingTables() {
+        jdbcTemplate.execute("""
+            CREATE TEMPORARY TABLE ingredient_import (LIKE ingredient INCLUDING DEFAULTS) ON COMMIT DROP
+            """);
+        jdbcTemplate.execute("""
+            CREATE TEMPORARY TABLE ingredient_variant_import (LIKE ingredient_variant INCLUDING DEFAULTS) ON COMMIT DROP
+            """);
+        jdbcTemplate.execute("""
+            CREATE TEMPORARY TABLE custom_unit_import (LIKE custom_unit INCLUDING DEFAULTS) ON COMMIT DROP
+            """);
+    }
+
+    /**
+     * @return the number of copied rows
+     */
+    public long copyIngredients(@NonNull final Stream<Ingredient> ingredients) {
+        return copy("ingredient_import", INGREDIENT_COLUMNS, ingredients, ingredient -> Arrays.asList(
+            ingredient.getId(),
+            ingredient.getName(),
+            ingredient.getWeightToVolumeConversionFactor(),
+            ingredient.getConversionWeightUnit(),
+            ingredient.getConversionVolumeUnit()
+        ));
+    }
+
+    /**
+     * @return the number of copied rows
+     */
+    public long copyIngredientVariants(@NonNull final Stream<IngredientVariant> ingredientVariants) {
+        return copy(
+            "ingredient_variant_import",
+            INGREDIENT_VARIANT_COLUMNS,
+            ingredientVariants,
+            ingredientVariant -> Arrays.asList(
+                ingredientVariant.getId(),
+                Objects.requireNonNull(ingredientVariant.getIngredient()).getId(),
+                ingredientVariant.getDescription(),
+                ingredientVariant.getDefaultVariant(),
+                ingredientVariant.getUnit(),
+                ingredientVariant.getServingSize(),
+                ingredientVariant.getCalories(),
+                ingredientVariant.getCarbohydrate(),
+                ingredientVariant.getFat(),
+                ingredientVariant.getProtein(),
+                ingredientVariant.getSaturatedFat(),
+                ingredientVariant.getSodium(),
+                ingredientVariant.getSugar()
+            )
+        );
+    }
+
+    /**
+     * @return the number of copied rows
+     */
+    public long copyCustomUnits(@NonNull final Stream<CustomUnit> customUnits) {
+        return copy("custom_unit_import", CUSTOM_UNIT_COLUMNS, customUnits, customUnit -> Arrays.asList(
+            customUnit.getId(),
+            Objects.requireNonNull(customUnit.getIngredient()).getId(),
+            customUnit.getName(),
+            customUnit.getCustomUnitToConversionUnitFactor(),
+            customUnit.getConversionUnit()
+        ));
+    }
+
+    /**
+     * Checks the staged rows against the unique and check constraints and unique indexes of the target tables, the
+     * generic unit rule being {@code check_custom_unit_name_not_generic} and the single default variant rule
+     * {@code idx_ingredientvariant_default_variant}.
+     *
+     * @return a description of each violation, at most {@code limit} of them
+     */
+    @NonNull
+    public List<String> findViolations(final int limit) {
+        return jdbcClient.sql("""
+                SELECT 'Duplicate ingredient name: ' || i.name
+                FROM ingredient_import i
+                GROUP BY i.name
+                HAVING COUNT(*) > 1
+                UNION ALL
+                SELECT 'Ingredient name already taken: ' || i.name
+                FROM ingredient_import i
+                         JOIN ingredient e ON e.name = i.name
+                UNION ALL
+                SELECT 'Duplicate ingredient variant description: ' || v.description
+                FROM ingredient_variant_import v
+                GROUP BY v.ingredient_id, v.description
+                HAVING COUNT(*) > 1
+                UNION ALL
+                SELECT 'More than one default ingredient variant for ingredient: ' || i.name
+                FROM ingredient_variant_import v
+                         JOIN ingredient_import i ON i.id = v.ingredient_id
+                GROUP BY i.id, i.name
+                HAVING COUNT(*) FILTER (WHERE v.default_variant) > 1
+                UNION ALL
+                SELECT 'Custom unit name must not be a generic unit: ' || c.name
+                FROM custom_unit_import c
+                WHERE UPPER(c.name) IN (SELECT CAST(u AS VARCHAR) FROM unnest(enum_range(CAST(NULL AS generic_unit))) u)
+                UNION ALL
+                SELECT 'Duplicate custom unit name: ' || c.name
+                FROM custom_unit_import c
+                GROUP BY c.ingredient_id, c.name
+                HAVING COUNT(*) > 1
+                LIMIT :limit
+                """)
+            .param("limit", limit)
+            .query(String.class)
+            .list();
+    }
+
+    /**
+     * Moves the staged rows into the target tables. The foreign keys are checked at the end of the statement, when the
+     * ingredients of all children are already inserted.
+     */
+    public void mergeStagingTables() {
+        // The staging tables were created like their targets, so their columns are in the same order.
+        jdbcTemplate.execute("""
+            WITH ingredients AS (
+                INSERT INTO ingredient SELECT * FROM ingredient_import
+            ), ingredient_variants AS (
+                INSERT INTO ingredient_variant SELECT * FROM ingredient_variant_import
+            )
+            INSERT INTO custom_unit SELECT * FROM custom_unit_import
+            """);
+    }
+
+    private <T> long copy(
+        @NonNull final String table,
+        @NonNull final String columns,
+        @NonNull final Stream<T> rows,
+        @NonNull final Function<T, List<@Nullable Object>> values
+    ) {
+        return Objects.requireNonNull(jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            final var copyIn = connection.unwrap(PGConnection.class)
+                .getCopyAPI()
+                .copyIn("COPY " + table + " (" + columns + ") FROM STDIN");
+            try {
+                final var chunk = new StringBuilder(COPY_CHUNK_SIZE);
+                for (final var iterator = rows.iterator(); iterator.hasNext(); ) {
+                    appendRow(chunk, values.apply(iterator.next()));
+                    if (chunk.length() >= COPY_CHUNK_SIZE) {
+                        writeToCopy(copyIn, chunk);
+                    }
+                }
+                writeToCopy(copyIn, chunk);
+                return copyIn.endCopy();
+            } finally {
+                // Only still active if the rows could not be produced or sent, and must be ended before the
+                // connection can be used again.
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }));
+    }
+
+    private static void writeToCopy(@NonNull final CopyIn copyIn, @NonNull final StringBuilder chunk)
+        throws SQLException {
+        final var bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    /**
+     * Appends a row in the text format of {@code COPY}: tab separated, {@code \N} for null and backslash escapes for
+     * the characters that would otherwise end a value or a row. Enums are written as their names, which are the labels
+     * of the corresponding PostgreSQL enum types.
+     */
+    private static void appendRow(@NonNull final StringBuilder chunk, @NonNull final List<@Nullable Object> values) {
+        for (var i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                chunk.append('\t');
+            }
+            final var value = values.get(i);
+            if (value == null) {
+                chunk.append("\\N");
+                continue;
+            }
+            for (final var character : value.toString().toCharArray()) {
+                switch (character) {
+                    case '\\' -> chunk.append("\\\\");
+                    case '\t' -> chunk.append("\\t");
+                    case '\n' -> chunk.append("\\n");
+                    case '\r' -> chunk.append("\\r");
+                    default -> chunk.append(character);
+                }
+            }
+        }
+        chunk.append('\n');
+    }
+}
@@ -0,0 +1,367 @@
+package net.fuzzyhome.home.database.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import net.fuzzyhome.home.database.projections.CustomUnitProjection;
+import net.fuzzyhome.home.database.projections.IngredientJson;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.database.projections.IngredientVariantProjection;
+import net.fuzzyhome.home.database.projections.IngredientVersion;
+import org.jspecify.annotations.NonNull;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Read side of the ingredient aggregate. Rows are mapped straight into projections, bypassing the persistence
+ * context, so nothing returned from here is managed or written back.
+ * <p>
+ * The page queries return up to one row more than the page size, which tells the caller whether a next page exists
+ * without a separate count.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngredientReadRepository {
+
+    // The unit columns use PostgreSQL enum types, which are read as their labels so the row mappers can convert
+    // them to the Java enums like any other string.
+    private static final String INGREDIENT_COLUMNS = """
+        i.id, i.version, i.name, i.weight_to_volume_conversion_factor,
+        CAST(i.conversion_weight_unit AS VARCHAR) AS conversion_weight_unit,
+        CAST(i.conversion_volume_unit AS VARCHAR) AS conversion_volume_unit
+        """;
+
+    private static final String INGREDIENT_VERSION_COLUMNS = """
+        i.id, i.version, i.name
+        """;
+
+    private static final String INGREDIENT_VARIANT_COLUMNS = """
+        v.id, v.version, v.ingredient_id, v.description, v.default_variant, CAST(v.unit AS VARCHAR) AS unit,
+        v.serving_size, v.calories, v.carbohydrate, v.fat, v.protein, v.saturated_fat, v.sodium, v.sugar
+        """;
+
+    private static final String CUSTOM_UNIT_COLUMNS = """
+        c.id, c.version, c.ingredient_id, c.name, c.custom_unit_to_conversion_unit_factor,
+        CAST(c.conversion_unit AS VARCHAR) AS conversion_unit
+        """;
+
+    /**
+     * Renders each ingredient in the shape of {@code IngredientDto}. Null fields are stripped, as the JSON mapper is
+     * configured to omit them, and the children are ordered like the projection queries order them.
+     */
+    private static final String INGREDIENT_JSON_COLUMNS = """
+        i.id, i.version, i.name, json_strip_nulls(json_build_object(
+            'id', i.id,
+            'name', i.name,
+            'weightToVolumeConversionFactor', i.weight_to_volume_conversion_factor,
+            'conversionWeightUnit', i.conversion_weight_unit,
+            'conversionVolumeUnit', i.conversion_volume_unit,
+            'ingredientVariants', COALESCE((
+                SELECT json_agg(json_build_object(
+                    'id', v.id,
+                    'description', v.description,
+                    'defaultVariant', v.default_variant,
+                    'unit', v.unit,
+                    'servingSize', v.serving_size,
+                    'calories', v.calories,
+                    'carbohydrate', v.carbohydrate,
+                    'fat', v.fat,
+                    'protein', v.protein,
+                    'saturatedFat', v.saturated_fat,
+                    'sodium', v.sodium,
+                    'sugar', v.sugar
+                ) ORDER BY v.id)
+                FROM ingredient_variant v
+                WHERE v.ingredient_id = i.id
+            ), CAST('[]' AS JSON)),
+            'customUnits', COALESCE((
+                SELECT json_agg(json_build_object(
+                    'id', c.id,
+                    'name', c.name,
+                    'customUnitToConversionUnitFactor', c.custom_unit_to_conversion_unit_factor,
+                    'conversionUnit', c.conversion_unit
+                ) ORDER BY c.id)
+                FROM custom_unit c
+                WHERE c.ingredient_id = i.id
+            ), CAST('[]' AS JSON))
+        )) AS json
+        """;
+
+    /**
+     * Case-insensitive substring match on the ingredient name with {@code %}, {@code _} and {@code \} in the search
+     * term escaped, backed by the trigram index {@code idx_ingredient_name_trgm}.
+     */
+    private static final String NAME_MATCHES_SEARCH = """
+        i.name ILIKE '%' || replace(replace(replace(:search, '\\', '\\\\'), '%', '\\%'), '_', '\\_') || '%'
+        """;
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final RowMapper<IngredientJson> INGREDIENT_JSON_ROW_MAPPER =
+        new DataClassRowMapper<>(IngredientJson.class);
+
+    private final JdbcClient jdbcClient;
+    private final JdbcTemplate jdbcTemplate;
+
+    @NonNull
+    public Optional<IngredientProjection> findById(@NonNull final UUID id) {
+        return findById(INGREDIENT_COLUMNS, IngredientProjection.class, id);
+    }
+
+    @NonNull
+    public List<IngredientProjection> findAll(final int page, final int size) {
+        return findAll(INGREDIENT_COLUMNS, IngredientProjection.class, page, size);
+    }
+
+    /**
+     * Keyset variant of {@link #findAll(int, int)}. The redundant {@code name >= :name} predicate lets the seek use
+     * {@code idx_ingredient_name}.
+     */
+    @NonNull
+    public List<IngredientProjection> findAllAfter(
+        @NonNull final String name,
+        @NonNull final UUID id,
+        final int size
+    ) {
+        return findAllAfter(INGREDIENT_COLUMNS, IngredientProjection.class, name, id, size);
+    }
+
+    /**
+     * Results are ranked by trigram similarity to the search term and ordered by name for equally similar names.
+     */
+    @NonNull
+    public List<IngredientProjection> searchByName(@NonNull final String search, final int page, final int size) {
+        return searchByName(INGREDIENT_COLUMNS, IngredientProjection.class, search, page, size);
+    }
+
+    /**
+     * Keyset variant of {@link #searchByName(String, int, int)}. The similarity of the cursor position is derived
+     * from its name, so the cursor only needs to carry name and id.
+     */
+    @NonNull
+    public List<IngredientProjection> searchByNameAfter(
+        @NonNull final String search,
+        @NonNull final String name,
+        @NonNull final UUID id,
+        final int size
+    ) {
+        return searchByNameAfter(INGREDIENT_COLUMNS, IngredientProjection.class, search, name, id, size);
+    }
+
+    /**
+     * Reads only the version of the ingredient, straight from the primary key index where possible.
+     */
+    @NonNull
+    public Optional<Long> findVersionById(@NonNull final UUID id) {
+        return jdbcClient.sql("SELECT i.version FROM ingredient i WHERE i.id = :id")
+            .param("id", id)
+            .query(Long.class)
+            .optional();
+    }
+
+    @NonNull
+    public List<IngredientVersion> findAllVersions(final int page, final int size) {
+        return findAll(INGREDIENT_VERSION_COLUMNS, IngredientVersion.class, page, size);
+    }
+
+    @NonNull
+    public List<IngredientVersion> findAllVersionsAfter(
+        @NonNull final String name,
+        @NonNull final UUID id,
+        final int size
+    ) {
+        return findAllAfter(INGREDIENT_VERSION_COLUMNS, IngredientVersion.class, name, id, size);
+    }
+
+    @NonNull
+    public List<IngredientVersion> searchVersionsByName(@NonNull final String search, final int page, final int size) {
+        return searchByName(INGREDIENT_VERSION_COLUMNS, IngredientVersion.class, search, page, size);
+    }
+
+    @NonNull
+    public List<IngredientVersion> searchVersionsByNameAfter(
+        @NonNull final String search,
+        @NonNull final String name,
+        @NonNull final UUID id,
+        final int size
+    ) {
+        return searchByNameAfter(INGREDIENT_VERSION_COLUMNS, IngredientVersion.class, search, name, id, size);
+    }
+
+    @NonNull
+    public Optional<IngredientJson> findJsonById(@NonNull final UUID id) {
+        return findById(INGREDIENT_JSON_COLUMNS, IngredientJson.class, id);
+    }
+
+    @NonNull
+    public List<IngredientJson> findAllJson(final int page, final int size) {
+        return findAll(INGREDIENT_JSON_COLUMNS, IngredientJson.class, page, size);
+    }
+
+    @NonNull
+    public List<IngredientJson> findAllJsonAfter(@NonNull final String name, @NonNull final UUID id, final int size) {
+        return findAllAfter(INGREDIENT_JSON_COLUMNS, IngredientJson.class, name, id, size);
+    }
+
+    @NonNull
+    public List<IngredientJson> searchJsonByName(@NonNull final String search, final int page, final int size) {
+        return searchByName(INGREDIENT_JSON_COLUMNS, IngredientJson.class, search, page, size);
+    }
+
+    @NonNull
+    public List<IngredientJson> searchJsonByNameAfter(
+        @NonNull final String search,
+        @NonNull final String name,
+        @NonNull final UUID id,
+        final int size
+    ) {
+        return searchByNameAfter(INGREDIENT_JSON_COLUMNS, IngredientJson.class, search, name, id, size);
+    }
+
+    /**
+     * Streams all ingredients as JSON in listing order to the given consumer while the rows arrive. The rows are read
+     * through a server-side cursor in batches of {@link #STREAM_FETCH_SIZE}, which requires a surrounding transaction.
+     */
+    public void streamAllJson(@NonNull final Consumer<IngredientJson> consumer) {
+        jdbcTemplate.query(
+            connection -> {
+                final var statement = connection.prepareStatement("SELECT " + INGREDIENT_JSON_COLUMNS + """
+                    FROM ingredient i
+                    ORDER BY i.name, i.id
+                    """);
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                return statement;
+            },
+            (RowCallbackHandler) resultSet -> consumer.accept(INGREDIENT_JSON_ROW_MAPPER.mapRow(resultSet, 0))
+        );
+    }
+
+    @NonNull
+    public List<IngredientVariantProjection> findIngredientVariantsByIngredientIds(
+        @NonNull final Collection<UUID> ingredientIds
+    ) {
+        return jdbcClient.sql("SELECT " + INGREDIENT_VARIANT_COLUMNS + """
+                FROM ingredient_variant v
+                WHERE v.ingredient_id IN (:ingredientIds)
+                ORDER BY v.ingredient_id, v.id
+                """)
+            .param("ingredientIds", ingredientIds)
+            .query(IngredientVariantProjection.class)
+            .list();
+    }
+
+    @NonNull
+    public List<CustomUnitProjection> findCustomUnitsByIngredientIds(@NonNull final Collection<UUID> ingredientIds) {
+        return jdbcClient.sql("SELECT " + CUSTOM_UNIT_COLUMNS + """
+                FROM custom_unit c
+                WHERE c.ingredient_id IN (:ingredientIds)
+                ORDER BY c.ingredient_id, c.id
+                """)
+            .param("ingredientIds", ingredientIds)
+            .query(CustomUnitProjection.class)
+            .list();
+    }
+
+    @NonNull
+    private <T> Optional<T> findById(
+        @NonNull final String columns,
+        @NonNull final Class<T> type,
+        @NonNull final UUID id
+    ) {
+        return jdbcClient.sql("SELECT " + columns + " FROM ingredient i WHERE i.id = :id")
+            .param("id", id)
+            .query(type)
+            .optional();
+    }
+
+    @NonNull
+    private <T> List<T> findAll(
+        @NonNull final String columns,
+        @NonNull final Class<T> type,
+        final int page,
+        final int size
+    ) {
+        return jdbcClient.sql("SELECT " + columns + """
+                FROM ingredient i
+                ORDER BY i.name, i.id
+                LIMIT :size + 1 OFFSET :offset
+                """)
+            .param("size", size)
+            .param("offset", (long) page * size)
+            .query(type)
+            .list();
+    }
+
+    @NonNull
+    private <T> List<T> findAllAfter(
+        @NonNull final String columns,
+        @NonNull final Class<T> type,
+        @NonNull final String name,
+        @NonNull final UUID id,
+        final int size
+    ) {
+        return jdbcClient.sql("SELECT " + columns + """
+                FROM ingredient i
+                WHERE i.name >= :name
+                  AND (i.name, i.id) > (:name, :id)
+                ORDER BY i.name, i.id
+                LIMIT :size + 1
+                """)
+            .param("name", name)
+            .param("id", id)
+            .param("size", size)
+            .query(type)
+            .list();
+    }
+
+    @NonNull
+    private <T> List<T> searchByName(
+        @NonNull final String columns,
+        @NonNull final Class<T> type,
+        @NonNull final String search,
+        final int page,
+        final int size
+    ) {
+        return jdbcClient.sql("SELECT " + columns + " FROM ingredient i WHERE " + NAME_MATCHES_SEARCH + """
+                ORDER BY similarity(i.name, :search) DESC, i.name, i.id
+                LIMIT :size + 1 OFFSET :offset
+                """)
+            .param("search", search)
+            .param("size", size)
+            .param("offset", (long) page * size)
+            .query(type)
+            .list();
+    }
+
+    @NonNull
+    private <T> List<T> searchByNameAfter(
+        @NonNull final String columns,
+        @NonNull final Class<T> type,
+        @NonNull final String search,
+        @NonNull final String name,
+        @NonNull final UUID id,
+        final int size
+    ) {
+        return jdbcClient.sql("SELECT " + columns + " FROM ingredient i WHERE " + NAME_MATCHES_SEARCH + """
+                  AND (
+                    similarity(i.name, :search) < similarity(:name, :search)
+                        OR (similarity(i.name, :search) = similarity(:name, :search) AND (i.name, i.id) > (:name, :id))
+                    )
+                ORDER BY similarity(i.name, :search) DESC, i.name, i.id
+                LIMIT :size + 1
+                """)
+            .param("search", search)
+            .param("name", name)
+            .param("id", id)
+            .param("size", size)
+            .query(type)
+            .list();
+    }
+}
@@ -1,13 +1,107 @@
 package net.fuzzyhome.home.database.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import net.fuzzyhome.home.database.entities.Ingredient;
+import net.fuzzyhome.home.database.enums.VolumeUnit;
+import net.fuzzyhome.home.database.enums.WeightUnit;
 import org.jspecify.annotations.NonNull;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.jspecify.annotations.Nullable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface IngredientRepository extends JpaRepository<@NonNull Ingredient, @NonNull UUID> {
+
+    /**
+     * Returns those of the given names that are already taken by an ingredient.
+     */
     @NonNull
-    Page<Ingredient> findByNameContainingIgnoreCase(@NonNull final String search, @NonNull final Pageable pageable);
+    @Query("SELECT i.name FROM Ingredient i WHERE i.name IN :names")
+    List<String> findExistingNames(@NonNull Collection<String> names);
+
+    /**
+     * Overwrites the fields of the ingredient itself and increments its version with a single statement, which holds
+     * the row lock until the end of the transaction. If an expected version is given, the ingredient is only updated
+     * while it still has that version.
+     *
+     * @return the number of updated rows, {@code 0} if the ingredient does not exist or has a different version
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ingredient i
+        SET i.name = :name,
+            i.weightToVolumeConversionFactor = :weightToVolumeConversionFactor,
+            i.conversionWeightUnit = :conversionWeightUnit,
+            i.conversionVolumeUnit = :conversionVolumeUnit,
+            i.version = i.version + 1
+        WHERE i.id = :id AND (:expectedVersion IS NULL OR i.version = :expectedVersion)
+        """)
+    int update(
+        @NonNull UUID id,
+        @Nullable Long expectedVersion,
+        @NonNull String name,
+        @Nullable Double weightToVolumeConversionFactor,
+        @Nullable WeightUnit conversionWeightUnit,
+        @Nullable VolumeUnit conversionVolumeUnit
+    );
+
+    default int update(
+        @NonNull final UUID id,
+        @Nullable final Long expectedVersion,
+        @NonNull final Ingredient values
+    ) {
+        return update(
+            id,
+            expectedVersion,
+            values.getName(),
+            values.getWeightToVolumeConversionFactor(),
+            values.getConversionWeightUnit(),
+            values.getConversionVolumeUnit()
+        );
+    }
+
+    /**
+     * Increments the version of the ingredient to mark a change to one of its variants or custom units. The statement
+     * holds the row lock until the end of the transaction, which serializes concurrent writes to the same aggregate.
+     *
+     * @return the number of updated rows, {@code 0} if the ingredient does not exist
+     */
+    @Modifying
+    @Query("UPDATE Ingredient i SET i.version = i.version + 1 WHERE i.id = :id")
+    int incrementVersion(@NonNull UUID id);
+
+    /**
+     * Same as {@link #incrementVersion(UUID)}, but if an expected version is given, only while the ingredient still
+     * has that version.
+     *
+     * @return the number of updated rows, {@code 0} if the ingredient does not exist or has a different version
+     */
+    @Modifying
+    @Query("""
+        UPDATE Ingredient i
+        SET i.version = i.version + 1
+        WHERE i.id = :id AND (:expectedVersion IS NULL OR i.version = :expectedVersion)
+        """)
+    int incrementVersion(
+        @NonNull UUID id,
+        @Nullable Long expectedVersion
+    );
+
+    /**
+     * Planner estimate of the number of ingredients as maintained by {@code ANALYZE} and autovacuum. Until the table
+     * got analyzed for the first time, which only happens while it is still small, the live row count of the
+     * cumulative statistics stands in, so neither case scans the table.
+     */
+    @Query(
+        value = """
+            SELECT CAST(CASE WHEN c.reltuples < 0 THEN s.n_live_tup ELSE c.reltuples END AS BIGINT)
+            FROM pg_class c
+            JOIN pg_stat_user_tables s ON s.relid = c.oid
+            WHERE c.oid = CAST('ingredient' AS REGCLASS)
+            """,
+        nativeQuery = true
+    )
+    long estimateCount();
 }
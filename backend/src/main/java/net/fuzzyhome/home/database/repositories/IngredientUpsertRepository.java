@@ -0,0 +1,107 @@
+package net.fuzzyhome.home.database.repositories;
+
+import java.util.List;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import net.fuzzyhome.home.database.entities.Ingredient;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.database.projections.IngredientUpsert;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Upserts of ingredients by their unique name, which Spring Data has no equivalent for.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngredientUpsertRepository {
+
+    private static final RowMapper<IngredientProjection> INGREDIENT_ROW_MAPPER =
+        new DataClassRowMapper<>(IngredientProjection.class);
+
+    private final JdbcClient jdbcClient;
+
+    /**
+     * Inserts the given ingredients, or updates the fields of those whose name is already taken, with a single
+     * {@code INSERT ... ON CONFLICT (name) DO UPDATE}. The conflicting row is locked and updated atomically, so
+     * concurrent upserts of the same name never fail on {@code uc_ingredient_name}. An updated ingredient only gets a
+     * new version if one of its fields actually changes, so repeating an upsert leaves the entity tag alone.
+     * <p>
+     * The names must be distinct, as PostgreSQL refuses to update the same row twice within one statement. The ids of
+     * the given ingredients are only used for inserted rows.
+     *
+     * @return the rows after the upsert, in no particular order
+     */
+    @NonNull
+    public List<IngredientUpsert> upsertByName(@NonNull final List<Ingredient> ingredients) {
+        // The unit columns use PostgreSQL enum types, which are sent and read as their labels like in
+        // IngredientReadRepository.
+        return jdbcClient.sql("""
+                INSERT INTO ingredient AS i (
+                    id, name, weight_to_volume_conversion_factor, conversion_weight_unit, conversion_volume_unit
+                )
+                SELECT *
+                FROM unnest(
+                    CAST(:ids AS UUID[]),
+                    CAST(:names AS VARCHAR[]),
+                    CAST(:weightToVolumeConversionFactors AS DOUBLE PRECISION[]),
+                    CAST(:conversionWeightUnits AS weight_unit[]),
+                    CAST(:conversionVolumeUnits AS volume_unit[])
+                )
+                ON CONFLICT (name) DO UPDATE
+                    SET weight_to_volume_conversion_factor = EXCLUDED.weight_to_volume_conversion_factor,
+                        conversion_weight_unit = EXCLUDED.conversion_weight_unit,
+                        conversion_volume_unit = EXCLUDED.conversion_volume_unit,
+                        version = CASE
+                            WHEN (
+                                    i.weight_to_volume_conversion_factor,
+                                    i.conversion_weight_unit,
+                                    i.conversion_volume_unit
+                                )
+                                IS DISTINCT FROM (
+                                    EXCLUDED.weight_to_volume_conversion_factor,
+                                    EXCLUDED.conversion_weight_unit,
+                                    EXCLUDED.conversion_volume_unit
+                                )
+                                THEN i.version + 1
+                            ELSE i.version
+                        END
+                RETURNING i.id, i.version, i.name, i.weight_to_volume_conversion_factor,
+                    CAST(i.conversion_weight_unit AS VARCHAR) AS conversion_weight_unit,
+                    CAST(i.conversion_volume_unit AS VARCHAR) AS conversion_volume_unit,
+                    i.xmax = 0 AS inserted
+                """)
+            .param("ids", toArray(ingredients, Ingredient::getId))
+            .param("names", toArray(ingredients, Ingredient::getName))
+            .param(
+                "weightToVolumeConversionFactors",
+                toArray(ingredients, Ingredient::getWeightToVolumeConversionFactor)
+            )
+            .param("conversionWeightUnits", toArray(ingredients, Ingredient::getConversionWeightUnit))
+            .param("conversionVolumeUnits", toArray(ingredients, Ingredient::getConversionVolumeUnit))
+            .query((resultSet, rowNum) -> new IngredientUpsert(
+                INGREDIENT_ROW_MAPPER.mapRow(resultSet, rowNum),
+                resultSet.getBoolean("inserted")
+            ))
+            .list();
+    }
+
+    /**
+     * Binds one field of all ingredients as a single text array, which the statement casts to the column type.
+     */
+    @NonNull
+    private static SqlArrayValue toArray(
+        @NonNull final List<Ingredient> ingredients,
+        @NonNull final Function<Ingredient, @Nullable Object> field
+    ) {
+        return new SqlArrayValue("varchar", ingredients.stream()
+            .map(field)
+            .map(value -> value == null ? null : value.toString())
+            .toArray());
+    }
+}
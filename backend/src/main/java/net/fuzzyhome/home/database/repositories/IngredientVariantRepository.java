@@ -4,14 +4,65 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import net.fuzzyhome.home.database.entities.IngredientVariant;
+import net.fuzzyhome.home.database.projections.IngredientVariantLookup;
 import org.jspecify.annotations.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface IngredientVariantRepository extends JpaRepository<@NonNull IngredientVariant, @NonNull UUID> {
     @NonNull List<IngredientVariant> findAllByIngredientId(@NonNull UUID ingredientId);
 
-    @NonNull Optional<IngredientVariant> findByIdAndIngredientId(
+    /**
+     * Resolves the ingredient and the variant in a single query. Empty if the ingredient does not exist.
+     */
+    @NonNull
+    @Query(
+        "SELECT new net.fuzzyhome.home.database.projections.IngredientVariantLookup(i.id, v) FROM Ingredient i "
+            + "LEFT JOIN IngredientVariant v ON v.ingredient = i AND v.id = :id WHERE i.id = :ingredientId"
+    )
+    Optional<IngredientVariantLookup> lookupByIdAndIngredientId(
         @NonNull UUID id,
         @NonNull UUID ingredientId
     );
+
+    /**
+     * Deletes the variant if it belongs to the ingredient.
+     *
+     * @return the number of deleted rows, {@code 0} if the variant does not belong to the ingredient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM IngredientVariant v WHERE v.id = :id AND v.ingredient.id = :ingredientId")
+    int deleteByIdAndIngredientId(
+        @NonNull UUID id,
+        @NonNull UUID ingredientId
+    );
+
+    /**
+     * Unsets the default flag on all variants of the ingredient. Has to run before {@link #markDefaultVariant} since
+     * the partial unique index on the default flag is checked per row.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        value = "UPDATE ingredient_variant SET default_variant = false, version = version + 1 "
+            + "WHERE ingredient_id = :ingredientId AND default_variant",
+        nativeQuery = true
+    )
+    int clearDefaultVariant(@NonNull UUID ingredientId);
+
+    /**
+     * Sets the default flag on the given variant of the ingredient.
+     *
+     * @return the number of updated rows, {@code 0} if the variant does not belong to the ingredient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        value = "UPDATE ingredient_variant SET default_variant = true, version = version + 1 "
+            + "WHERE id = :variantId AND ingredient_id = :ingredientId",
+        nativeQuery = true
+    )
+    int markDefaultVariant(
+        @NonNull UUID ingredientId,
+        @NonNull UUID variantId
+    );
 }
@@ -0,0 +1,63 @@
+package net.fuzzyhome.home.rest;
+
+import net.fuzzyhome.home.services.errors.PreconditionFailedException;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Entity tags are the quoted version of the resource, which makes them strong validators that are cheap to compare.
+ */
+public class EntityTags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    @NonNull
+    public static String format(final long version) {
+        return format(Long.toString(version));
+    }
+
+    @NonNull
+    public static String format(@NonNull final String version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Whether any of the tags in an {@code If-None-Match} header matches the given entity tag. Following RFC 9110,
+     * the weak comparison is used, so a weak tag matches the strong tag with the same value.
+     */
+    public static boolean matchesIfNoneMatch(@Nullable final String ifNoneMatch, @NonNull final String entityTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (final var candidate : ifNoneMatch.split(",")) {
+            final var tag = candidate.strip();
+            if (tag.equals(ANY) || tag.equals(entityTag) || tag.equals(WEAK_PREFIX + entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses the version out of an {@code If-Match} header. An absent header or {@code *} yield {@code null}, as any
+     * existing resource matches them. A tag that this service cannot have issued never matches.
+     */
+    @Nullable
+    public static Long parseIfMatch(@Nullable final String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals(ANY)) {
+            return null;
+        }
+
+        final var tag = ifMatch.strip();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException(String.format("Entity tag does not match: %s", ifMatch));
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (final NumberFormatException e) {
+            throw new PreconditionFailedException(String.format("Entity tag does not match: %s", ifMatch));
+        }
+    }
+}
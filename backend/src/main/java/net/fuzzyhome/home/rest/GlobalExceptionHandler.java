@@ -1,10 +1,14 @@
 package net.fuzzyhome.home.rest;
 
+import jakarta.validation.ConstraintViolationException;
 import net.fuzzyhome.home.services.errors.BadRequestException;
+import net.fuzzyhome.home.services.errors.ConflictException;
 import net.fuzzyhome.home.services.errors.NotFoundException;
+import net.fuzzyhome.home.services.errors.PreconditionFailedException;
 import org.jspecify.annotations.NonNull;
 import org.openapitools.model.ErrorDto;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -24,6 +28,32 @@ public class GlobalExceptionHandler {
                 .build());
     }
 
+    @ExceptionHandler(ConflictException.class)
+    @NonNull
+    public ResponseEntity<@NonNull ErrorDto> handleConflictException(
+        @NonNull final ConflictException conflictException
+    ) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+            .body(ErrorDto.builder()
+                .message(conflictException.getMessage())
+                .build());
+    }
+
+    /**
+     * Constraints on whole request bodies, such as the size of a batch, are checked by method validation of the
+     * generated interfaces rather than by the binding of the body.
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    @NonNull
+    public ResponseEntity<@NonNull ErrorDto> handleConstraintViolationException(
+        @NonNull final ConstraintViolationException constraintViolationException
+    ) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+            .body(ErrorDto.builder()
+                .message(constraintViolationException.getMessage())
+                .build());
+    }
+
     @ExceptionHandler(DataIntegrityViolationException.class)
     @NonNull
     public ResponseEntity<@NonNull ErrorDto> handleDataIntegrityViolationException(
@@ -45,4 +75,30 @@ public class GlobalExceptionHandler {
                 .message(notFoundException.getMessage())
                 .build());
     }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    @NonNull
+    public ResponseEntity<@NonNull ErrorDto> handlePreconditionFailedException(
+        @NonNull final PreconditionFailedException preconditionFailedException
+    ) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+            .body(ErrorDto.builder()
+                .message(preconditionFailedException.getMessage())
+                .build());
+    }
+
+    /**
+     * A concurrent write got in between reading an entity and writing it back, so the version the write was based on
+     * is no longer current.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @NonNull
+    public ResponseEntity<@NonNull ErrorDto> handleOptimisticLockingFailureException(
+        @NonNull final OptimisticLockingFailureException optimisticLockingFailureException
+    ) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+            .body(ErrorDto.builder()
+                .message(optimisticLockingFailureException.getMessage())
+                .build());
+    }
 }
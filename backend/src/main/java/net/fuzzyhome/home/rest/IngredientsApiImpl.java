@@ -1,63 +1,319 @@
 package net.fuzzyhome.home.rest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.RequiredArgsConstructor;
+import net.fuzzyhome.home.config.JsonAggregationProperties;
+import net.fuzzyhome.home.services.IdempotencyService;
 import net.fuzzyhome.home.services.IngredientService;
+import net.fuzzyhome.home.services.errors.BadRequestException;
+import net.fuzzyhome.home.services.models.Versioned;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.openapitools.api.IngredientsApi;
+import org.openapitools.api.IngredientsBatchApi;
 import org.openapitools.model.CustomUnitDto;
+import org.openapitools.model.CustomUnitPatchRequest;
 import org.openapitools.model.CustomUnitWriteRequest;
+import org.openapitools.model.IngredientBatchResultDto;
+import org.openapitools.model.IngredientBatchWriteRequest;
 import org.openapitools.model.IngredientDto;
+import org.openapitools.model.IngredientImportResultDto;
+import org.openapitools.model.IngredientPatchRequest;
 import org.openapitools.model.IngredientVariantDto;
+import org.openapitools.model.IngredientVariantPatchRequest;
 import org.openapitools.model.IngredientVariantWriteRequest;
 import org.openapitools.model.IngredientWriteRequest;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.ResponseEntity.BodyBuilder;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
 
 @RestController
 @RequiredArgsConstructor
-public class IngredientsApiImpl implements IngredientsApi {
+public class IngredientsApiImpl implements IngredientsApi, IngredientsBatchApi {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    static final Duration EXPORT_TIMEOUT = Duration.ofMinutes(10);
+
+    private final IdempotencyService idempotencyService;
     private final IngredientService ingredientService;
+    private final JsonAggregationProperties jsonAggregationProperties;
+    private final JsonMapper jsonMapper;
 
     @NonNull
     @Override
     public ResponseEntity<@NonNull List<IngredientDto>> listIngredients(
         @NonNull final Integer page,
         @NonNull final Integer size,
-        @Nullable final String search
+        @Nullable final String search,
+        @Nullable final String after,
+        @NonNull final Boolean includeTotalCount,
+        @Nullable final String ifNoneMatch
+    ) {
+        if (ifNoneMatch != null) {
+            final var entityTag = EntityTags.format(
+                ingredientService.getIngredientsVersion(page, size, search, after, includeTotalCount)
+            );
+            if (EntityTags.matchesIfNoneMatch(ifNoneMatch, entityTag)) {
+                return notModified(entityTag);
+            }
+        }
+
+        if (jsonAggregationProperties.isEnabled()) {
+            final var ingredientPage = ingredientService.getAllIngredientsAsJson(
+                page,
+                size,
+                search,
+                after,
+                includeTotalCount
+            );
+            return rawJsonBody(
+                pageResponse(
+                    ingredientPage.nextCursor(),
+                    ingredientPage.estimatedTotalCount(),
+                    ingredientPage.version()
+                ),
+                ingredientPage.ingredients()
+            );
+        }
+
+        final var ingredientPage = ingredientService.getAllIngredients(page, size, search, after, includeTotalCount);
+        return pageResponse(ingredientPage.nextCursor(), ingredientPage.estimatedTotalCount(), ingredientPage.version())
+            .body(ingredientPage.ingredients());
+    }
+
+    @NonNull
+    private static BodyBuilder pageResponse(
+        @Nullable final String nextCursor,
+        @Nullable final Long estimatedTotalCount,
+        @NonNull final String version
+    ) {
+        return ResponseEntity.status(HttpStatus.OK)
+            .eTag(EntityTags.format(version))
+            .headers(headers -> {
+                Optional.ofNullable(nextCursor)
+                    .ifPresent(cursor -> headers.set(NEXT_CURSOR_HEADER, cursor));
+                Optional.ofNullable(estimatedTotalCount)
+                    .ifPresent(totalCount -> headers.set(TOTAL_COUNT_HEADER, totalCount.toString()));
+            });
+    }
+
+    /**
+     * Responds with JSON that was already rendered by the database. The declared body type of the generated interface
+     * only matters for Jackson, the bytes are written as they are by the byte array message converter.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static <T> ResponseEntity<T> rawJsonBody(
+        @NonNull final BodyBuilder responseBuilder,
+        final byte @NonNull [] json
     ) {
+        return (ResponseEntity<T>) responseBuilder.contentType(MediaType.APPLICATION_JSON)
+            .body(json);
+    }
+
+    /**
+     * Parses the catalog one line at a time while it arrives, so the import can start before the whole body is read.
+     */
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull IngredientImportResultDto> importIngredients(
+        @NonNull final InputStreamResource ingredientImport
+    ) {
+        try (final var ingredientBatchWriteRequests = jsonMapper.readerFor(IngredientBatchWriteRequest.class)
+            .<IngredientBatchWriteRequest>readValues(ingredientImport.getInputStream())) {
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(ingredientService.importIngredients(ingredientBatchWriteRequests));
+        } catch (final JacksonException e) {
+            throw new BadRequestException(String.format("Malformed ingredient: %s", e.getOriginalMessage()));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the ingredients as the database renders them straight to the response, joined into one array. Streaming
+     * the whole catalog may take longer than any interactive request is allowed to, so the timeout of the asynchronous
+     * request the body is written in is raised for this response only.
+     */
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull StreamingResponseBody> exportIngredients() {
+        final var request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        Objects.requireNonNull(WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest())
+            .setTimeout(EXPORT_TIMEOUT.toMillis());
+
         return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.getAllIngredients(page, size, search));
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(outputStream -> {
+                outputStream.write('[');
+                final var first = new AtomicBoolean(true);
+                ingredientService.exportIngredients(ingredient -> {
+                    try {
+                        if (!first.getAndSet(false)) {
+                            outputStream.write(',');
+                        }
+                        outputStream.write(ingredient);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                outputStream.write(']');
+            });
     }
 
     @NonNull
     @Override
     public ResponseEntity<@NonNull IngredientDto> createIngredient(
-        @NonNull final IngredientWriteRequest ingredientWriteRequest
+        @NonNull final IngredientWriteRequest ingredientWriteRequest,
+        @Nullable final String idempotencyKey
     ) {
         return ResponseEntity.status(HttpStatus.CREATED)
-            .body(ingredientService.createIngredient(ingredientWriteRequest));
+            .body(idempotencyService.execute(
+                "createIngredient",
+                idempotencyKey,
+                ingredientWriteRequest,
+                IngredientDto.class,
+                () -> ingredientService.createIngredient(ingredientWriteRequest)
+            ));
     }
 
     @NonNull
     @Override
-    public ResponseEntity<@NonNull IngredientDto> getIngredient(@NonNull final UUID ingredientId) {
+    public ResponseEntity<@NonNull List<IngredientBatchResultDto>> createIngredients(
+        @NonNull final List<IngredientBatchWriteRequest> ingredientBatchWriteRequests
+    ) {
         return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.getIngredientById(ingredientId));
+            .body(ingredientService.createIngredients(ingredientBatchWriteRequests));
+    }
+
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull IngredientDto> getIngredient(
+        @NonNull final UUID ingredientId,
+        @Nullable final String ifNoneMatch
+    ) {
+        final var notModified = this.<IngredientDto>notModifiedIngredient(ingredientId, ifNoneMatch);
+        if (notModified.isPresent()) {
+            return notModified.get();
+        }
+
+        if (jsonAggregationProperties.isEnabled()) {
+            final var ingredient = ingredientService.getIngredientByIdAsJson(ingredientId);
+            return rawJsonBody(versionedResponse(ingredient), ingredient.value());
+        }
+
+        final var ingredient = ingredientService.getIngredientById(ingredientId);
+        return versionedResponse(ingredient).body(ingredient.value());
     }
 
     @NonNull
     @Override
     public ResponseEntity<@NonNull IngredientDto> updateIngredient(
         @NonNull final UUID ingredientId,
+        @NonNull final IngredientWriteRequest ingredientWriteRequest,
+        @Nullable final String ifMatch
+    ) {
+        final var ingredient = ingredientService.updateIngredient(
+            ingredientId,
+            EntityTags.parseIfMatch(ifMatch),
+            ingredientWriteRequest
+        );
+        return versionedResponse(ingredient).body(ingredient.value());
+    }
+
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull IngredientDto> patchIngredient(
+        @NonNull final UUID ingredientId,
+        @NonNull final IngredientPatchRequest ingredientPatchRequest,
+        @Nullable final String ifMatch
+    ) {
+        final var ingredient = ingredientService.patchIngredient(
+            ingredientId,
+            EntityTags.parseIfMatch(ifMatch),
+            ingredientPatchRequest
+        );
+        return versionedResponse(ingredient).body(ingredient.value());
+    }
+
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull IngredientDto> upsertIngredientByName(
+        @NonNull final String name,
         @NonNull final IngredientWriteRequest ingredientWriteRequest
+    ) {
+        final var upserted = ingredientService.upsertIngredientByName(name, ingredientWriteRequest);
+        return versionedResponse(upserted.created() ? HttpStatus.CREATED : HttpStatus.OK, upserted.ingredient())
+            .body(upserted.ingredient().value());
+    }
+
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull List<IngredientBatchResultDto>> upsertIngredientsByName(
+        @NonNull final List<IngredientWriteRequest> ingredientWriteRequests
     ) {
         return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.updateIngredient(ingredientId, ingredientWriteRequest));
+            .body(ingredientService.upsertIngredientsByName(ingredientWriteRequests));
+    }
+
+    @NonNull
+    private static BodyBuilder versionedResponse(@NonNull final Versioned<?> versioned) {
+        return versionedResponse(HttpStatus.OK, versioned);
+    }
+
+    @NonNull
+    private static BodyBuilder versionedResponse(
+        @NonNull final HttpStatus status,
+        @NonNull final Versioned<?> versioned
+    ) {
+        return ResponseEntity.status(status)
+            .eTag(EntityTags.format(versioned.version()));
+    }
+
+    /**
+     * Answers a conditional GET whose entity tag is still current, without having read the representation at all.
+     */
+    @NonNull
+    private static <T> ResponseEntity<T> notModified(@NonNull final String entityTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(entityTag)
+            .build();
+    }
+
+    /**
+     * Checks a conditional GET on an ingredient, its variants or its custom units, which all share the entity tag of
+     * the ingredient, against the version alone.
+     */
+    @NonNull
+    private <T> Optional<ResponseEntity<T>> notModifiedIngredient(
+        @NonNull final UUID ingredientId,
+        @Nullable final String ifNoneMatch
+    ) {
+        if (ifNoneMatch == null) {
+            return Optional.empty();
+        }
+        final var entityTag = EntityTags.format(ingredientService.getIngredientVersion(ingredientId));
+        return EntityTags.matchesIfNoneMatch(ifNoneMatch, entityTag)
+            ? Optional.of(notModified(entityTag))
+            : Optional.empty();
     }
 
     @NonNull
@@ -68,23 +324,59 @@ public class IngredientsApiImpl implements IngredientsApi {
             .build();
     }
 
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull Void> deleteIngredients(@NonNull final List<UUID> ids) {
+        ingredientService.deleteIngredients(ids);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT)
+            .build();
+    }
+
     @NonNull
     @Override
     public ResponseEntity<@NonNull List<IngredientVariantDto>> listIngredientVariants(
-        @NonNull final UUID ingredientId
+        @NonNull final UUID ingredientId,
+        @Nullable final String ifNoneMatch
     ) {
-        return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.getIngredientVariantsByIngredientId(ingredientId));
+        final var notModified = this.<List<IngredientVariantDto>>notModifiedIngredient(ingredientId, ifNoneMatch);
+        if (notModified.isPresent()) {
+            return notModified.get();
+        }
+
+        final var ingredientVariants = ingredientService.getIngredientVariantsByIngredientId(ingredientId);
+        return versionedResponse(ingredientVariants).body(ingredientVariants.value());
     }
 
     @NonNull
     @Override
     public ResponseEntity<@NonNull IngredientVariantDto> addIngredientVariant(
         @NonNull final UUID ingredientId,
-        @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest
+        @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest,
+        @Nullable final String idempotencyKey
     ) {
         return ResponseEntity.status(HttpStatus.CREATED)
-            .body(ingredientService.addIngredientVariantToIngredient(ingredientId, ingredientVariantWriteRequest));
+            .body(idempotencyService.execute(
+                "addIngredientVariant",
+                idempotencyKey,
+                List.of(ingredientId, ingredientVariantWriteRequest),
+                IngredientVariantDto.class,
+                () -> ingredientService.addIngredientVariantToIngredient(ingredientId, ingredientVariantWriteRequest)
+            ));
+    }
+
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull List<IngredientVariantDto>> replaceIngredientVariants(
+        @NonNull final UUID ingredientId,
+        @NonNull final List<IngredientVariantWriteRequest> ingredientVariantWriteRequests,
+        @Nullable final String ifMatch
+    ) {
+        final var ingredientVariants = ingredientService.replaceIngredientVariants(
+            ingredientId,
+            EntityTags.parseIfMatch(ifMatch),
+            ingredientVariantWriteRequests
+        );
+        return versionedResponse(ingredientVariants).body(ingredientVariants.value());
     }
 
     @NonNull
@@ -93,8 +385,8 @@ public class IngredientsApiImpl implements IngredientsApi {
         @NonNull final UUID ingredientId,
         @NonNull final UUID variantId
     ) {
-        return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.getIngredientVariantById(ingredientId, variantId));
+        final var ingredientVariant = ingredientService.getIngredientVariantById(ingredientId, variantId);
+        return versionedResponse(ingredientVariant).body(ingredientVariant.value());
     }
 
     @NonNull
@@ -102,10 +394,33 @@ public class IngredientsApiImpl implements IngredientsApi {
     public ResponseEntity<@NonNull IngredientVariantDto> updateIngredientVariant(
         @NonNull final UUID ingredientId,
         @NonNull final UUID variantId,
-        @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest
+        @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest,
+        @Nullable final String ifMatch
     ) {
-        return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.updateIngredientVariant(ingredientId, variantId, ingredientVariantWriteRequest));
+        final var ingredientVariant = ingredientService.updateIngredientVariant(
+            ingredientId,
+            variantId,
+            EntityTags.parseIfMatch(ifMatch),
+            ingredientVariantWriteRequest
+        );
+        return versionedResponse(ingredientVariant).body(ingredientVariant.value());
+    }
+
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull IngredientVariantDto> patchIngredientVariant(
+        @NonNull final UUID ingredientId,
+        @NonNull final UUID variantId,
+        @NonNull final IngredientVariantPatchRequest ingredientVariantPatchRequest,
+        @Nullable final String ifMatch
+    ) {
+        final var ingredientVariant = ingredientService.patchIngredientVariant(
+            ingredientId,
+            variantId,
+            EntityTags.parseIfMatch(ifMatch),
+            ingredientVariantPatchRequest
+        );
+        return versionedResponse(ingredientVariant).body(ingredientVariant.value());
     }
 
     @NonNull
@@ -121,19 +436,34 @@ public class IngredientsApiImpl implements IngredientsApi {
 
     @NonNull
     @Override
-    public ResponseEntity<@NonNull List<CustomUnitDto>> listCustomUnits(@NonNull final UUID ingredientId) {
-        return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.getCustomUnitsByIngredientId(ingredientId));
+    public ResponseEntity<@NonNull List<CustomUnitDto>> listCustomUnits(
+        @NonNull final UUID ingredientId,
+        @Nullable final String ifNoneMatch
+    ) {
+        final var notModified = this.<List<CustomUnitDto>>notModifiedIngredient(ingredientId, ifNoneMatch);
+        if (notModified.isPresent()) {
+            return notModified.get();
+        }
+
+        final var customUnits = ingredientService.getCustomUnitsByIngredientId(ingredientId);
+        return versionedResponse(customUnits).body(customUnits.value());
     }
 
     @NonNull
     @Override
     public ResponseEntity<@NonNull CustomUnitDto> addCustomUnit(
         @NonNull final UUID ingredientId,
-        @NonNull final CustomUnitWriteRequest customUnitWriteRequest
+        @NonNull final CustomUnitWriteRequest customUnitWriteRequest,
+        @Nullable final String idempotencyKey
     ) {
         return ResponseEntity.status(HttpStatus.CREATED)
-            .body(ingredientService.addCustomUnitToIngredient(ingredientId, customUnitWriteRequest));
+            .body(idempotencyService.execute(
+                "addCustomUnit",
+                idempotencyKey,
+                List.of(ingredientId, customUnitWriteRequest),
+                CustomUnitDto.class,
+                () -> ingredientService.addCustomUnitToIngredient(ingredientId, customUnitWriteRequest)
+            ));
     }
 
     @NonNull
@@ -142,8 +472,8 @@ public class IngredientsApiImpl implements IngredientsApi {
         @NonNull final UUID ingredientId,
         @NonNull final UUID unitId
     ) {
-        return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.getCustomUnitById(ingredientId, unitId));
+        final var customUnit = ingredientService.getCustomUnitById(ingredientId, unitId);
+        return versionedResponse(customUnit).body(customUnit.value());
     }
 
     @NonNull
@@ -151,10 +481,33 @@ public class IngredientsApiImpl implements IngredientsApi {
     public ResponseEntity<@NonNull CustomUnitDto> updateCustomUnit(
         @NonNull final UUID ingredientId,
         @NonNull final UUID unitId,
-        @NonNull final CustomUnitWriteRequest customUnitWriteRequest
+        @NonNull final CustomUnitWriteRequest customUnitWriteRequest,
+        @Nullable final String ifMatch
     ) {
-        return ResponseEntity.status(HttpStatus.OK)
-            .body(ingredientService.updateCustomUnit(ingredientId, unitId, customUnitWriteRequest));
+        final var customUnit = ingredientService.updateCustomUnit(
+            ingredientId,
+            unitId,
+            EntityTags.parseIfMatch(ifMatch),
+            customUnitWriteRequest
+        );
+        return versionedResponse(customUnit).body(customUnit.value());
+    }
+
+    @NonNull
+    @Override
+    public ResponseEntity<@NonNull CustomUnitDto> patchCustomUnit(
+        @NonNull final UUID ingredientId,
+        @NonNull final UUID unitId,
+        @NonNull final CustomUnitPatchRequest customUnitPatchRequest,
+        @Nullable final String ifMatch
+    ) {
+        final var customUnit = ingredientService.patchCustomUnit(
+            ingredientId,
+            unitId,
+            EntityTags.parseIfMatch(ifMatch),
+            customUnitPatchRequest
+        );
+        return versionedResponse(customUnit).body(customUnit.value());
     }
 
     @NonNull
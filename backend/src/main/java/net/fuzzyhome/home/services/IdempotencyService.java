@@ -0,0 +1,28 @@
+package net.fuzzyhome.home.services;
+
+import java.util.function.Supplier;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+public interface IdempotencyService {
+
+    /**
+     * Runs the action at most once per scope and idempotency key, in a transaction together with storing its response.
+     * Retries with the same key get that response replayed without running the action again, for as long as the key
+     * lives. A key that is reused for a different request fails with a
+     * {@link net.fuzzyhome.home.services.errors.ConflictException}. If the action fails, nothing is stored and a retry
+     * runs it again. Without a key, the action simply runs.
+     *
+     * @param request everything the action depends on, to recognize a key reused for a different request
+     */
+    @NonNull
+    <T> T execute(
+        @NonNull final String scope,
+        @Nullable final String key,
+        @NonNull final Object request,
+        @NonNull final Class<T> responseType,
+        @NonNull final Supplier<T> action
+    );
+
+    void purgeExpiredKeys();
+}
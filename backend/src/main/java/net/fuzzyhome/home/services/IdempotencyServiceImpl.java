@@ -0,0 +1,142 @@
+package net.fuzzyhome.home.services;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import net.fuzzyhome.home.config.IdempotencyProperties;
+import net.fuzzyhome.home.database.projections.IdempotencyKey;
+import net.fuzzyhome.home.database.repositories.IdempotencyKeyRepository;
+import net.fuzzyhome.home.services.errors.BadRequestException;
+import net.fuzzyhome.home.services.errors.ConflictException;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Keeps the idempotency keys in the database, which makes them hold across instances and restarts, with the most
+ * recently used ones in an in-memory LRU cache in front. The cache only ever holds keys whose response is committed,
+ * and those never change until they expire, so a replay from the cache needs neither a transaction nor a connection.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyProperties idempotencyProperties;
+    private final JsonMapper jsonMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, IdempotencyKey> recentKeys;
+
+    public IdempotencyServiceImpl(
+        @NonNull final IdempotencyKeyRepository idempotencyKeyRepository,
+        @NonNull final IdempotencyProperties idempotencyProperties,
+        @NonNull final JsonMapper jsonMapper,
+        @NonNull final PlatformTransactionManager transactionManager
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.idempotencyProperties = idempotencyProperties;
+        this.jsonMapper = jsonMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recentKeys = Collections.synchronizedMap(new LinkedHashMap<String, IdempotencyKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, IdempotencyKey> eldest) {
+                return size() > idempotencyProperties.getCacheSize();
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public <T> T execute(
+        @NonNull final String scope,
+        @Nullable final String key,
+        @NonNull final Object request,
+        @NonNull final Class<T> responseType,
+        @NonNull final Supplier<T> action
+    ) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(String.format(
+                "Idempotency key must have between 1 and %d characters",
+                MAX_KEY_LENGTH
+            ));
+        }
+
+        final var requestHash = DigestUtils.md5DigestAsHex(jsonMapper.writeValueAsBytes(request));
+        final var cacheKey = scope + " " + key;
+        final var recentKey = recentKeys.get(cacheKey);
+        if (recentKey != null && !isExpired(recentKey)) {
+            return replay(key, recentKey, requestHash, responseType);
+        }
+
+        return Objects.requireNonNull(transactionTemplate.execute(status -> {
+            if (idempotencyKeyRepository.claim(scope, key, requestHash, idempotencyProperties.getTimeToLive())) {
+                final var response = action.get();
+                final var body = jsonMapper.writeValueAsBytes(response);
+                idempotencyKeyRepository.saveResponse(scope, key, body);
+                // A rollback releases the key again, so only a committed response may be replayed from memory.
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentKeys.put(cacheKey, new IdempotencyKey(requestHash, body, OffsetDateTime.now()));
+                    }
+                });
+                return response;
+            }
+
+            // Only a key of a transaction that committed in the meantime is left unclaimed, unless it was purged or
+            // has just expired.
+            final var storedKey = idempotencyKeyRepository.find(scope, key)
+                .filter(idempotencyKey -> idempotencyKey.response() != null)
+                .orElseThrow(() -> new ConflictException(String.format(
+                    "Idempotency key is in use by another request: %s",
+                    key
+                )));
+            recentKeys.put(cacheKey, storedKey);
+            return replay(key, storedKey, requestHash, responseType);
+        }));
+    }
+
+    @NonNull
+    private <T> T replay(
+        @NonNull final String key,
+        @NonNull final IdempotencyKey idempotencyKey,
+        @NonNull final String requestHash,
+        @NonNull final Class<T> responseType
+    ) {
+        if (!idempotencyKey.requestHash().equals(requestHash)) {
+            throw new ConflictException(String.format(
+                "Idempotency key was already used for a different request: %s",
+                key
+            ));
+        }
+        return jsonMapper.readValue(Objects.requireNonNull(idempotencyKey.response()), responseType);
+    }
+
+    private boolean isExpired(@NonNull final IdempotencyKey idempotencyKey) {
+        return idempotencyKey.createdAt()
+            .plus(idempotencyProperties.getTimeToLive())
+            .isBefore(OffsetDateTime.now());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{@idempotencyProperties.purgeInterval.toMillis()}")
+    @Transactional
+    public void purgeExpiredKeys() {
+        idempotencyKeyRepository.deleteExpired(idempotencyProperties.getTimeToLive());
+    }
+}
@@ -1,40 +1,166 @@
 package net.fuzzyhome.home.services;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import net.fuzzyhome.home.services.models.IngredientJsonPage;
+import net.fuzzyhome.home.services.models.IngredientPage;
+import net.fuzzyhome.home.services.models.UpsertedIngredient;
+import net.fuzzyhome.home.services.models.Versioned;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.openapitools.model.CustomUnitDto;
+import org.openapitools.model.CustomUnitPatchRequest;
 import org.openapitools.model.CustomUnitWriteRequest;
+import org.openapitools.model.IngredientBatchResultDto;
+import org.openapitools.model.IngredientBatchWriteRequest;
 import org.openapitools.model.IngredientDto;
+import org.openapitools.model.IngredientImportResultDto;
+import org.openapitools.model.IngredientPatchRequest;
 import org.openapitools.model.IngredientVariantDto;
+import org.openapitools.model.IngredientVariantPatchRequest;
 import org.openapitools.model.IngredientVariantWriteRequest;
 import org.openapitools.model.IngredientWriteRequest;
 
 public interface IngredientService {
     @NonNull
-    List<IngredientDto> getAllIngredients(
+    IngredientPage getAllIngredients(
         @NonNull final Integer page,
         @NonNull final Integer size,
-        @Nullable final String search
+        @Nullable final String search,
+        @Nullable final String after,
+        final boolean includeTotalCount
     );
 
+    /**
+     * Same as {@link #getAllIngredients(Integer, Integer, String, String, boolean)}, but with the page rendered as a
+     * JSON array by the database.
+     */
+    @NonNull
+    IngredientJsonPage getAllIngredientsAsJson(
+        @NonNull final Integer page,
+        @NonNull final Integer size,
+        @Nullable final String search,
+        @Nullable final String after,
+        final boolean includeTotalCount
+    );
+
+    /**
+     * Computes only the version of the page {@link #getAllIngredients(Integer, Integer, String, String, boolean)}
+     * would return for the same arguments, without loading the ingredients or their children. The version also covers
+     * the next cursor and the total count of the page.
+     */
+    @NonNull
+    String getIngredientsVersion(
+        @NonNull final Integer page,
+        @NonNull final Integer size,
+        @Nullable final String search,
+        @Nullable final String after,
+        final boolean includeTotalCount
+    );
+
+    /**
+     * Hands every ingredient, rendered as {@code IngredientDto} JSON, to the given consumer in listing order without
+     * materializing the whole catalog.
+     */
+    void exportIngredients(@NonNull final Consumer<byte @NonNull []> consumer);
+
     @NonNull
     IngredientDto createIngredient(@NonNull final IngredientWriteRequest ingredientWriteRequest);
 
+    /**
+     * Creates the given ingredients with their variants and custom units in one transaction. Items that are invalid
+     * or whose name is already taken are reported as failed, all others are created.
+     *
+     * @return one result per item, in the order of the given items
+     */
     @NonNull
-    IngredientDto getIngredientById(@NonNull final UUID ingredientId);
+    List<IngredientBatchResultDto> createIngredients(
+        @NonNull final List<IngredientBatchWriteRequest> ingredientBatchWriteRequests
+    );
+
+    /**
+     * Imports the given ingredients with their variants and custom units all or nothing, reading them only once and
+     * one at a time, so the caller may parse them while they arrive. Meant for loading whole catalogs, where
+     * {@link #createIngredients(List)} would take too long. If any of the ingredients is invalid or its name is
+     * already taken, nothing is imported and a {@link net.fuzzyhome.home.services.errors.BadRequestException} lists
+     * the first violations.
+     */
+    @NonNull
+    IngredientImportResultDto importIngredients(
+        @NonNull final Iterator<IngredientBatchWriteRequest> ingredientBatchWriteRequests
+    );
+
+    /**
+     * Creates the ingredient with the given name, or updates it if the name is already taken. Its variants, custom
+     * units and default variant are left untouched, so the request must not name a default variant.
+     */
+    @NonNull
+    UpsertedIngredient upsertIngredientByName(
+        @NonNull final String name,
+        @NonNull final IngredientWriteRequest ingredientWriteRequest
+    );
+
+    /**
+     * Same as {@link #upsertIngredientByName(String, IngredientWriteRequest)} for all given ingredients at once, whose
+     * names must be distinct.
+     *
+     * @return one result per ingredient, in the order of the given ingredients
+     */
+    @NonNull
+    List<IngredientBatchResultDto> upsertIngredientsByName(
+        @NonNull final List<IngredientWriteRequest> ingredientWriteRequests
+    );
+
+    /**
+     * Retrieves an ingredient with its variants and custom units. The version covers the whole aggregate, as every
+     * change to a variant or custom unit increments the version of its ingredient as well.
+     */
+    @NonNull
+    Versioned<IngredientDto> getIngredientById(@NonNull final UUID ingredientId);
+
+    /**
+     * Looks up only the version of an ingredient, which is also the version of its variants and custom units as a
+     * whole.
+     */
+    long getIngredientVersion(@NonNull final UUID ingredientId);
 
+    /**
+     * Same as {@link #getIngredientById(UUID)}, but rendered as JSON by the database.
+     */
     @NonNull
-    IngredientDto updateIngredient(
+    Versioned<byte @NonNull []> getIngredientByIdAsJson(@NonNull final UUID ingredientId);
+
+    /**
+     * Updates an ingredient. If an expected version is given, the update fails with a
+     * {@link net.fuzzyhome.home.services.errors.PreconditionFailedException} unless the ingredient still has that
+     * version.
+     */
+    @NonNull
+    Versioned<IngredientDto> updateIngredient(
         @NonNull final UUID ingredientId,
+        @Nullable final Long expectedVersion,
         @NonNull final IngredientWriteRequest ingredientWriteRequest
     );
 
+    /**
+     * Same as {@link #updateIngredient(UUID, Long, IngredientWriteRequest)}, but only writes the fields present in the
+     * patch.
+     */
+    @NonNull
+    Versioned<IngredientDto> patchIngredient(
+        @NonNull final UUID ingredientId,
+        @Nullable final Long expectedVersion,
+        @NonNull final IngredientPatchRequest ingredientPatchRequest
+    );
+
     void deleteIngredient(@NonNull final UUID ingredientId);
 
+    void deleteIngredients(@NonNull final List<UUID> ingredientIds);
+
     @NonNull
-    List<IngredientVariantDto> getIngredientVariantsByIngredientId(@NonNull final UUID ingredientId);
+    Versioned<List<IngredientVariantDto>> getIngredientVariantsByIngredientId(@NonNull final UUID ingredientId);
 
     @NonNull
     IngredientVariantDto addIngredientVariantToIngredient(
@@ -43,19 +169,45 @@ public interface IngredientService {
     );
 
     @NonNull
-    IngredientVariantDto getIngredientVariantById(@NonNull final UUID ingredientId, @NonNull final UUID variantId);
+    Versioned<IngredientVariantDto> getIngredientVariantById(
+        @NonNull final UUID ingredientId,
+        @NonNull final UUID variantId
+    );
 
     @NonNull
-    IngredientVariantDto updateIngredientVariant(
+    Versioned<IngredientVariantDto> updateIngredientVariant(
         @NonNull final UUID ingredientId,
         @NonNull final UUID variantId,
+        @Nullable final Long expectedVersion,
         @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest
     );
 
+    @NonNull
+    Versioned<IngredientVariantDto> patchIngredientVariant(
+        @NonNull final UUID ingredientId,
+        @NonNull final UUID variantId,
+        @Nullable final Long expectedVersion,
+        @NonNull final IngredientVariantPatchRequest ingredientVariantPatchRequest
+    );
+
+    /**
+     * Replaces all variants of an ingredient with the given ones in a single transaction, writing only the difference.
+     * Variants are matched by their description, which is unique per ingredient: matching variants are updated, the
+     * others deleted and the remaining given ones added. If an expected version is given, the replacement fails with a
+     * {@link net.fuzzyhome.home.services.errors.PreconditionFailedException} unless the ingredient still has that
+     * version.
+     */
+    @NonNull
+    Versioned<List<IngredientVariantDto>> replaceIngredientVariants(
+        @NonNull final UUID ingredientId,
+        @Nullable final Long expectedVersion,
+        @NonNull final List<IngredientVariantWriteRequest> ingredientVariantWriteRequests
+    );
+
     void deleteIngredientVariant(@NonNull final UUID ingredientId, @NonNull final UUID variantId);
 
     @NonNull
-    List<CustomUnitDto> getCustomUnitsByIngredientId(@NonNull final UUID ingredientId);
+    Versioned<List<CustomUnitDto>> getCustomUnitsByIngredientId(@NonNull final UUID ingredientId);
 
     @NonNull
     CustomUnitDto addCustomUnitToIngredient(
@@ -63,14 +215,24 @@ public interface IngredientService {
         @NonNull final CustomUnitWriteRequest customUnitWriteRequest
     );
 
-    @NonNull CustomUnitDto getCustomUnitById(@NonNull final UUID ingredientId, @NonNull final UUID unitId);
+    @NonNull
+    Versioned<CustomUnitDto> getCustomUnitById(@NonNull final UUID ingredientId, @NonNull final UUID unitId);
 
     @NonNull
-    CustomUnitDto updateCustomUnit(
+    Versioned<CustomUnitDto> updateCustomUnit(
         @NonNull final UUID ingredientId,
         @NonNull final UUID unitId,
+        @Nullable final Long expectedVersion,
         @NonNull final CustomUnitWriteRequest customUnitWriteRequest
     );
 
+    @NonNull
+    Versioned<CustomUnitDto> patchCustomUnit(
+        @NonNull final UUID ingredientId,
+        @NonNull final UUID unitId,
+        @Nullable final Long expectedVersion,
+        @NonNull final CustomUnitPatchRequest customUnitPatchRequest
+    );
+
     void deleteCustomUnit(@NonNull final UUID ingredientId, @NonNull final UUID unitId);
 }
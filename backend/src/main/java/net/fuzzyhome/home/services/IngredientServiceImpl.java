@@ -1,142 +1,740 @@
 package net.fuzzyhome.home.services;
 
-import jakarta.transaction.Transactional;
+import jakarta.validation.Validator;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 import lombok.RequiredArgsConstructor;
-import net.fuzzyhome.home.database.entities.Ingredient;
+import net.fuzzyhome.home.config.Workload;
+import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.IngredientVariant;
+import net.fuzzyhome.home.database.enums.GenericUnit;
+import net.fuzzyhome.home.database.projections.CustomUnitProjection;
+import net.fuzzyhome.home.database.projections.IngredientJson;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.database.projections.IngredientUpsert;
+import net.fuzzyhome.home.database.projections.IngredientVariantProjection;
+import net.fuzzyhome.home.database.projections.IngredientVersion;
 import net.fuzzyhome.home.database.repositories.CustomUnitRepository;
+import net.fuzzyhome.home.database.repositories.IngredientImportRepository;
+import net.fuzzyhome.home.database.repositories.IngredientReadRepository;
 import net.fuzzyhome.home.database.repositories.IngredientRepository;
+import net.fuzzyhome.home.database.repositories.IngredientUpsertRepository;
 import net.fuzzyhome.home.database.repositories.IngredientVariantRepository;
 import net.fuzzyhome.home.services.errors.BadRequestException;
 import net.fuzzyhome.home.services.errors.NotFoundException;
+import net.fuzzyhome.home.services.errors.PreconditionFailedException;
 import net.fuzzyhome.home.services.mappers.CustomUnitMapper;
 import net.fuzzyhome.home.services.mappers.IngredientMapper;
 import net.fuzzyhome.home.services.mappers.IngredientVariantMapper;
+import net.fuzzyhome.home.services.models.IngredientCursor;
+import net.fuzzyhome.home.services.models.IngredientJsonPage;
+import net.fuzzyhome.home.services.models.IngredientPage;
+import net.fuzzyhome.home.services.models.UpsertedIngredient;
+import net.fuzzyhome.home.services.models.Versioned;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.id.uuid.UuidVersion7Strategy;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.openapitools.model.CustomUnitDto;
+import org.openapitools.model.CustomUnitPatchRequest;
 import org.openapitools.model.CustomUnitWriteRequest;
+import org.openapitools.model.ErrorDto;
+import org.openapitools.model.IngredientBatchResultDto;
+import org.openapitools.model.IngredientBatchStatusDto;
+import org.openapitools.model.IngredientBatchWriteRequest;
 import org.openapitools.model.IngredientDto;
+import org.openapitools.model.IngredientImportResultDto;
+import org.openapitools.model.IngredientPatchRequest;
 import org.openapitools.model.IngredientVariantDto;
+import org.openapitools.model.IngredientVariantPatchRequest;
 import org.openapitools.model.IngredientVariantWriteRequest;
 import org.openapitools.model.IngredientWriteRequest;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Writes run in read-write transactions on the primary. Reads are marked read-only, so Hibernate neither keeps
+ * snapshots of the loaded entities nor flushes them, and {@link net.fuzzyhome.home.config.DataSourceConfig} can route
+ * them to a replica. Imports, exports and batches are labeled as {@link Workload#BATCH}, which gives them a connection
+ * pool of their own.
+ */
 @RequiredArgsConstructor
 @Service
 @Transactional
 public class IngredientServiceImpl implements IngredientService {
 
+    /**
+     * Names a custom unit must not have, mirroring {@code check_custom_unit_name_not_generic}.
+     */
+    private static final Set<String> GENERIC_UNIT_NAMES = Arrays.stream(GenericUnit.values())
+        .map(GenericUnit::name)
+        .collect(Collectors.toUnmodifiableSet());
+
+    private static final int MAX_REPORTED_IMPORT_VIOLATIONS = 20;
+
     private final CustomUnitMapper customUnitMapper;
     private final CustomUnitRepository customUnitRepository;
+    private final IngredientImportRepository ingredientImportRepository;
     private final IngredientMapper ingredientMapper;
+    private final IngredientReadRepository ingredientReadRepository;
     private final IngredientRepository ingredientRepository;
+    private final IngredientUpsertRepository ingredientUpsertRepository;
     private final IngredientVariantMapper ingredientVariantMapper;
     private final IngredientVariantRepository ingredientVariantRepository;
+    private final Validator validator;
 
     @NonNull
     @Override
-    public List<IngredientDto> getAllIngredients(
+    @Transactional(readOnly = true)
+    public IngredientPage getAllIngredients(
         @NonNull final Integer page,
         @NonNull final Integer size,
-        @Nullable final String search
+        @Nullable final String search,
+        @Nullable final String after,
+        final boolean includeTotalCount
     ) {
-        return Optional.ofNullable(StringUtils.trimToNull(search))
-            .map(s -> ingredientRepository.findByNameContainingIgnoreCase(
-                s,
-                PageRequest.of(page, size, Sort.by("name"))
-            ))
-            .orElseGet(() -> ingredientRepository.findAll(PageRequest.of(page, size, Sort.by("name"))))
+        final var trimmedSearch = StringUtils.trimToNull(search);
+        final List<IngredientProjection> rows;
+        if (after != null) {
+            final var cursor = IngredientCursor.decode(after);
+            rows = trimmedSearch == null
+                ? ingredientReadRepository.findAllAfter(cursor.name(), cursor.id(), size)
+                : ingredientReadRepository.searchByNameAfter(trimmedSearch, cursor.name(), cursor.id(), size);
+        } else {
+            rows = trimmedSearch == null
+                ? ingredientReadRepository.findAll(page, size)
+                : ingredientReadRepository.searchByName(trimmedSearch, page, size);
+        }
+
+        final var ingredients = trimToPage(rows, size);
+        final var nextCursor = rows.size() > size
+            ? IngredientCursor.of(ingredients.getLast()).encode()
+            : null;
+        final var estimatedTotalCount = includeTotalCount && trimmedSearch == null
+            ? ingredientRepository.estimateCount()
+            : null;
+        return new IngredientPage(
+            mapIngredientsToDtos(ingredients),
+            nextCursor,
+            estimatedTotalCount,
+            pageVersion(
+                ingredients.stream()
+                    .map(ingredient -> new IngredientVersion(ingredient.id(), ingredient.version(), ingredient.name()))
+                    .toList(),
+                nextCursor != null,
+                estimatedTotalCount
+            )
+        );
+    }
+
+    @NonNull
+    @Override
+    @Transactional(readOnly = true)
+    public IngredientJsonPage getAllIngredientsAsJson(
+        @NonNull final Integer page,
+        @NonNull final Integer size,
+        @Nullable final String search,
+        @Nullable final String after,
+        final boolean includeTotalCount
+    ) {
+        final var trimmedSearch = StringUtils.trimToNull(search);
+        final List<IngredientJson> rows;
+        if (after != null) {
+            final var cursor = IngredientCursor.decode(after);
+            rows = trimmedSearch == null
+                ? ingredientReadRepository.findAllJsonAfter(cursor.name(), cursor.id(), size)
+                : ingredientReadRepository.searchJsonByNameAfter(trimmedSearch, cursor.name(), cursor.id(), size);
+        } else {
+            rows = trimmedSearch == null
+                ? ingredientReadRepository.findAllJson(page, size)
+                : ingredientReadRepository.searchJsonByName(trimmedSearch, page, size);
+        }
+
+        final var ingredients = trimToPage(rows, size);
+        final var nextCursor = rows.size() > size
+            ? IngredientCursor.of(ingredients.getLast()).encode()
+            : null;
+        final var estimatedTotalCount = includeTotalCount && trimmedSearch == null
+            ? ingredientRepository.estimateCount()
+            : null;
+        return new IngredientJsonPage(
+            joinToJsonArray(ingredients),
+            nextCursor,
+            estimatedTotalCount,
+            pageVersion(
+                ingredients.stream()
+                    .map(ingredient -> new IngredientVersion(ingredient.id(), ingredient.version(), ingredient.name()))
+                    .toList(),
+                nextCursor != null,
+                estimatedTotalCount
+            )
+        );
+    }
+
+    @NonNull
+    @Override
+    @Transactional(readOnly = true)
+    public String getIngredientsVersion(
+        @NonNull final Integer page,
+        @NonNull final Integer size,
+        @Nullable final String search,
+        @Nullable final String after,
+        final boolean includeTotalCount
+    ) {
+        final var trimmedSearch = StringUtils.trimToNull(search);
+        final List<IngredientVersion> rows;
+        if (after != null) {
+            final var cursor = IngredientCursor.decode(after);
+            rows = trimmedSearch == null
+                ? ingredientReadRepository.findAllVersionsAfter(cursor.name(), cursor.id(), size)
+                : ingredientReadRepository.searchVersionsByNameAfter(trimmedSearch, cursor.name(), cursor.id(), size);
+        } else {
+            rows = trimmedSearch == null
+                ? ingredientReadRepository.findAllVersions(page, size)
+                : ingredientReadRepository.searchVersionsByName(trimmedSearch, page, size);
+        }
+        final var estimatedTotalCount = includeTotalCount && trimmedSearch == null
+            ? ingredientRepository.estimateCount()
+            : null;
+        return pageVersion(trimToPage(rows, size), rows.size() > size, estimatedTotalCount);
+    }
+
+    /**
+     * Digests the ids and versions of the ingredients on a page in order. As every change to an ingredient, its
+     * variants or its custom units increments the version of the ingredient, this covers the whole page. The presence
+     * of a next cursor and the total count are sent as headers, which a {@code 304} tells the client to keep, so they
+     * are covered as well.
+     */
+    @NonNull
+    private static String pageVersion(
+        @NonNull final List<IngredientVersion> ingredients,
+        final boolean hasNextCursor,
+        @Nullable final Long estimatedTotalCount
+    ) {
+        final var buffer = ByteBuffer.allocate(ingredients.size() * 3 * Long.BYTES + 1 + Long.BYTES);
+        for (final var ingredient : ingredients) {
+            buffer.putLong(ingredient.id().getMostSignificantBits())
+                .putLong(ingredient.id().getLeastSignificantBits())
+                .putLong(ingredient.version());
+        }
+        buffer.put((byte) (hasNextCursor ? 1 : 0))
+            .putLong(estimatedTotalCount == null ? -1 : estimatedTotalCount);
+        return DigestUtils.md5DigestAsHex(buffer.array());
+    }
+
+    @Override
+    @Transactional(readOnly = true, label = Workload.BATCH_LABEL)
+    public void exportIngredients(@NonNull final Consumer<byte @NonNull []> consumer) {
+        ingredientReadRepository.streamAllJson(ingredient -> consumer.accept(ingredient.json()));
+    }
+
+    private byte @NonNull [] joinToJsonArray(@NonNull final List<IngredientJson> ingredients) {
+        final var jsonArray = new ByteArrayOutputStream(
+            2 + ingredients.stream().mapToInt(ingredient -> ingredient.json().length + 1).sum()
+        );
+        jsonArray.write('[');
+        for (int i = 0; i < ingredients.size(); i++) {
+            if (i > 0) {
+                jsonArray.write(',');
+            }
+            jsonArray.writeBytes(ingredients.get(i).json());
+        }
+        jsonArray.write(']');
+        return jsonArray.toByteArray();
+    }
+
+    /**
+     * Loads the children of all given ingredients with one query per child type and assembles the DTOs.
+     */
+    @NonNull
+    private List<IngredientDto> mapIngredientsToDtos(@NonNull final List<IngredientProjection> ingredients) {
+        if (ingredients.isEmpty()) {
+            return List.of();
+        }
+
+        final var ingredientIds = ingredients.stream()
+            .map(IngredientProjection::id)
+            .toList();
+        final var variantsByIngredientId = ingredientReadRepository.findIngredientVariantsByIngredientIds(ingredientIds)
+            .stream()
+            .collect(Collectors.groupingBy(IngredientVariantProjection::ingredientId));
+        final var customUnitsByIngredientId = ingredientReadRepository.findCustomUnitsByIngredientIds(ingredientIds)
             .stream()
-            .map(ingredientMapper::mapIngredientToDto)
+            .collect(Collectors.groupingBy(CustomUnitProjection::ingredientId));
+
+        return ingredients.stream()
+            .map(ingredient -> ingredientMapper.mapIngredientToDto(
+                ingredient,
+                variantsByIngredientId.getOrDefault(ingredient.id(), List.of()),
+                customUnitsByIngredientId.getOrDefault(ingredient.id(), List.of())
+            ))
             .toList();
     }
 
+    /**
+     * Drops the row read past the end of the page, which only tells whether a next page exists.
+     */
+    @NonNull
+    private static <T> List<T> trimToPage(@NonNull final List<T> rows, final int size) {
+        return rows.size() > size ? rows.subList(0, size) : rows;
+    }
+
     @NonNull
     @Override
     public IngredientDto createIngredient(@NonNull final IngredientWriteRequest ingredientWriteRequest) {
+        // A new ingredient has no variants yet that could become its default.
+        if (ingredientWriteRequest.getDefaultVariantId() != null) {
+            throw new BadRequestException(String.format(
+                "Ingredient variant not found for id: %s",
+                ingredientWriteRequest.getDefaultVariantId()
+            ));
+        }
+
         final var savedIngredient = ingredientRepository.save(
             ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)
         );
-        reconcileDefaultVariant(savedIngredient, ingredientWriteRequest.getDefaultVariantId());
         return ingredientMapper.mapIngredientToDto(savedIngredient);
     }
 
+    /**
+     * Rejects items up front that the database would reject, as a single failing insert would abort the whole
+     * transaction. The inserts of the remaining items are only issued on the final flush, where Hibernate orders them
+     * by table and sends them in JDBC batches.
+     */
+    @NonNull
+    @Override
+    @Transactional(label = Workload.BATCH_LABEL)
+    public List<IngredientBatchResultDto> createIngredients(
+        @NonNull final List<IngredientBatchWriteRequest> ingredientBatchWriteRequests
+    ) {
+        final var takenNames = new HashSet<>(ingredientRepository.findExistingNames(
+            ingredientBatchWriteRequests.stream()
+                .map(ingredientBatchWriteRequest -> ingredientBatchWriteRequest.getIngredient().getName())
+                .distinct()
+                .toList()
+        ));
+
+        final var results = new ArrayList<IngredientBatchResultDto>(ingredientBatchWriteRequests.size());
+        for (final var ingredientBatchWriteRequest : ingredientBatchWriteRequests) {
+            final var error = findBatchItemError(ingredientBatchWriteRequest, takenNames);
+            if (error != null) {
+                results.add(IngredientBatchResultDto.builder()
+                    .status(IngredientBatchStatusDto.FAILED)
+                    .error(ErrorDto.builder()
+                        .message(error)
+                        .build())
+                    .build());
+                continue;
+            }
+
+            takenNames.add(ingredientBatchWriteRequest.getIngredient().getName());
+            final var ingredient = ingredientRepository.save(
+                ingredientMapper.mapBatchWriteRequestToIngredient(ingredientBatchWriteRequest)
+            );
+            results.add(IngredientBatchResultDto.builder()
+                .status(IngredientBatchStatusDto.CREATED)
+                .ingredient(ingredientMapper.mapIngredientToDto(ingredient))
+                .build());
+        }
+        ingredientRepository.flush();
+        return results;
+    }
+
+    /**
+     * Checks an item of a batch against the constraints of the schema, as far as they can be checked without writing.
+     *
+     * @return the reason the item is rejected, or {@code null} if it is valid
+     */
+    @Nullable
+    private static String findBatchItemError(
+        @NonNull final IngredientBatchWriteRequest ingredientBatchWriteRequest,
+        @NonNull final Set<String> takenNames
+    ) {
+        final var ingredientWriteRequest = ingredientBatchWriteRequest.getIngredient();
+        if (ingredientWriteRequest.getDefaultVariantId() != null) {
+            return String.format(
+                "Ingredient variant not found for id: %s",
+                ingredientWriteRequest.getDefaultVariantId()
+            );
+        }
+        if (takenNames.contains(ingredientWriteRequest.getName())) {
+            return String.format("Ingredient name already taken: %s", ingredientWriteRequest.getName());
+        }
+
+        final var descriptions = new HashSet<String>();
+        for (final var ingredientVariant : Optional.ofNullable(ingredientBatchWriteRequest.getIngredientVariants())
+            .orElse(List.of())) {
+            if (!descriptions.add(ingredientVariant.getDescription())) {
+                return String.format(
+                    "Duplicate ingredient variant description: %s",
+                    ingredientVariant.getDescription()
+                );
+            }
+        }
+
+        final var customUnitNames = new HashSet<String>();
+        for (final var customUnit : Optional.ofNullable(ingredientBatchWriteRequest.getCustomUnits())
+            .orElse(List.of())) {
+            if (GENERIC_UNIT_NAMES.contains(customUnit.getName().toUpperCase(Locale.ROOT))) {
+                return String.format("Custom unit name must not be a generic unit: %s", customUnit.getName());
+            }
+            if (!customUnitNames.add(customUnit.getName())) {
+                return String.format("Duplicate custom unit name: %s", customUnit.getName());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The ingredients are copied while they are read. Their children are collected meanwhile and copied afterward, as
+     * a connection can only run one {@code COPY} at a time. Ids are assigned here, so the children can reference their
+     * ingredient before anything is merged. Items that are invalid on their own are not copied, as the staging tables
+     * would reject them with an error of their own, but reported together with the violations found after copying.
+     */
+    @NonNull
+    @Override
+    @Transactional(label = Workload.BATCH_LABEL)
+    public IngredientImportResultDto importIngredients(
+        @NonNull final Iterator<IngredientBatchWriteRequest> ingredientBatchWriteRequests
+    ) {
+        ingredientImportRepository.createStagingTables();
+
+        final var violations = new ArrayList<String>();
+        final var itemNumber = new AtomicLong();
+        final var ingredientVariants = new ArrayList<IngredientVariant>();
+        final var customUnits = new ArrayList<CustomUnit>();
+        final var ingredientCount = ingredientImportRepository.copyIngredients(StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(ingredientBatchWriteRequests, Spliterator.ORDERED),
+                false
+            )
+            .filter(ingredientBatchWriteRequest -> {
+                final var itemViolations = findImportItemViolations(
+                    ingredientBatchWriteRequest,
+                    itemNumber.incrementAndGet()
+                );
+                itemViolations.stream()
+                    .limit(MAX_REPORTED_IMPORT_VIOLATIONS - violations.size())
+                    .forEach(violations::add);
+                return itemViolations.isEmpty();
+            })
+            .map(ingredientBatchWriteRequest -> {
+                final var ingredient = ingredientMapper.mapBatchWriteRequestToIngredient(ingredientBatchWriteRequest);
+                ingredient.setId(newId());
+                for (final var ingredientVariant : Objects.requireNonNull(ingredient.getIngredientVariants())) {
+                    ingredientVariant.setId(newId());
+                    ingredientVariants.add(ingredientVariant);
+                }
+                for (final var customUnit : Objects.requireNonNull(ingredient.getCustomUnits())) {
+                    customUnit.setId(newId());
+                    customUnits.add(customUnit);
+                }
+                return ingredient;
+            }));
+        final var ingredientVariantCount = ingredientImportRepository.copyIngredientVariants(
+            ingredientVariants.stream()
+        );
+        final var customUnitCount = ingredientImportRepository.copyCustomUnits(customUnits.stream());
+
+        violations.addAll(
+            ingredientImportRepository.findViolations(MAX_REPORTED_IMPORT_VIOLATIONS - violations.size())
+        );
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(String.join("; ", violations));
+        }
+        ingredientImportRepository.mergeStagingTables();
+        return IngredientImportResultDto.builder()
+            .ingredients(ingredientCount)
+            .ingredientVariants(ingredientVariantCount)
+            .customUnits(customUnitCount)
+            .build();
+    }
+
+    /**
+     * Checks an item of an import against the constraints of the schema, which the generated interface can only check
+     * for requests it reads as a whole.
+     *
+     * @param itemNumber the position of the item in the import, starting at 1
+     * @return a description of each violation
+     */
+    @NonNull
+    private List<String> findImportItemViolations(
+        @NonNull final IngredientBatchWriteRequest ingredientBatchWriteRequest,
+        final long itemNumber
+    ) {
+        final var constraintViolations = validator.validate(ingredientBatchWriteRequest);
+        if (!constraintViolations.isEmpty()) {
+            return constraintViolations.stream()
+                .map(constraintViolation -> String.format(
+                    "Invalid ingredient %d: %s %s",
+                    itemNumber,
+                    constraintViolation.getPropertyPath(),
+                    constraintViolation.getMessage()
+                ))
+                .sorted()
+                .toList();
+        }
+
+        final var defaultVariantId = ingredientBatchWriteRequest.getIngredient().getDefaultVariantId();
+        if (defaultVariantId != null) {
+            return List.of(String.format("Ingredient variant not found for id: %s", defaultVariantId));
+        }
+        return List.of();
+    }
+
+    @NonNull
+    @Override
+    public UpsertedIngredient upsertIngredientByName(
+        @NonNull final String name,
+        @NonNull final IngredientWriteRequest ingredientWriteRequest
+    ) {
+        if (!name.equals(ingredientWriteRequest.getName())) {
+            throw new BadRequestException(
+                String.format("Ingredient name does not match path: %s", ingredientWriteRequest.getName())
+            );
+        }
+
+        final var upsert = upsertByName(List.of(ingredientWriteRequest)).getFirst();
+        return new UpsertedIngredient(
+            new Versioned<>(
+                mapIngredientsToDtos(List.of(upsert.ingredient())).getFirst(),
+                upsert.ingredient().version()
+            ),
+            upsert.inserted()
+        );
+    }
+
+    @NonNull
+    @Override
+    @Transactional(label = Workload.BATCH_LABEL)
+    public List<IngredientBatchResultDto> upsertIngredientsByName(
+        @NonNull final List<IngredientWriteRequest> ingredientWriteRequests
+    ) {
+        final var upserts = upsertByName(ingredientWriteRequests);
+        final var ingredientDtos = mapIngredientsToDtos(upserts.stream()
+            .map(IngredientUpsert::ingredient)
+            .toList());
+
+        final var results = new ArrayList<IngredientBatchResultDto>(upserts.size());
+        for (int i = 0; i < upserts.size(); i++) {
+            results.add(IngredientBatchResultDto.builder()
+                .status(upserts.get(i).inserted() ? IngredientBatchStatusDto.CREATED : IngredientBatchStatusDto.UPDATED)
+                .ingredient(ingredientDtos.get(i))
+                .build());
+        }
+        return results;
+    }
+
+    /**
+     * @return the upserted rows in the order of the given ingredients
+     */
+    @NonNull
+    private List<IngredientUpsert> upsertByName(@NonNull final List<IngredientWriteRequest> ingredientWriteRequests) {
+        final var names = new HashSet<String>();
+        for (final var ingredientWriteRequest : ingredientWriteRequests) {
+            if (ingredientWriteRequest.getDefaultVariantId() != null) {
+                throw new BadRequestException(String.format(
+                    "Default variant cannot be set by an upsert: %s",
+                    ingredientWriteRequest.getDefaultVariantId()
+                ));
+            }
+            if (!names.add(ingredientWriteRequest.getName())) {
+                throw new BadRequestException(
+                    String.format("Duplicate ingredient name: %s", ingredientWriteRequest.getName())
+                );
+            }
+        }
+
+        final var upsertsByName = ingredientUpsertRepository.upsertByName(ingredientWriteRequests.stream()
+                .map(ingredientWriteRequest -> {
+                    final var ingredient = ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest);
+                    ingredient.setId(newId());
+                    return ingredient;
+                })
+                .toList())
+            .stream()
+            .collect(Collectors.toMap(upsert -> upsert.ingredient().name(), Function.identity()));
+        return ingredientWriteRequests.stream()
+            .map(ingredientWriteRequest -> upsertsByName.get(ingredientWriteRequest.getName()))
+            .toList();
+    }
+
+    /**
+     * Generates an id in the same time-ordered form as the {@code @UuidGenerator} of the entities, for rows written
+     * past Hibernate.
+     */
+    @NonNull
+    private static UUID newId() {
+        return UuidVersion7Strategy.INSTANCE.generateUuid(null);
+    }
+
+    @NonNull
+    @Override
+    @Transactional(readOnly = true)
+    public Versioned<IngredientDto> getIngredientById(@NonNull final UUID ingredientId) {
+        return ingredientReadRepository.findById(ingredientId)
+            .map(ingredient -> new Versioned<>(
+                mapIngredientsToDtos(List.of(ingredient)).getFirst(),
+                ingredient.version()
+            ))
+            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getIngredientVersion(@NonNull final UUID ingredientId) {
+        return ingredientReadRepository.findVersionById(ingredientId)
+            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+    }
+
     @NonNull
     @Override
-    public IngredientDto getIngredientById(@NonNull final UUID ingredientId) {
-        return ingredientRepository.findById(ingredientId)
-            .map(ingredientMapper::mapIngredientToDto)
+    @Transactional(readOnly = true)
+    public Versioned<byte @NonNull []> getIngredientByIdAsJson(@NonNull final UUID ingredientId) {
+        return ingredientReadRepository.findJsonById(ingredientId)
+            .map(ingredient -> new Versioned<>(ingredient.json(), ingredient.version()))
             .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
     }
 
+    /**
+     * Updates the ingredient with a single conditional statement instead of loading it first. Only if no row was
+     * updated, a second query tells a missing ingredient apart from a version mismatch.
+     */
     @NonNull
     @Override
-    public IngredientDto updateIngredient(
+    public Versioned<IngredientDto> updateIngredient(
         @NonNull final UUID ingredientId,
+        @Nullable final Long expectedVersion,
         @NonNull final IngredientWriteRequest ingredientWriteRequest
     ) {
-        return ingredientRepository.findById(ingredientId)
-            .map(ingredient -> ingredientMapper.updateIngredientFromWriteRequest(ingredient, ingredientWriteRequest))
-            .map(ingredientRepository::save)
-            .map(ingredient -> {
-                reconcileDefaultVariant(ingredient, ingredientWriteRequest.getDefaultVariantId());
-                return ingredient;
-            })
-            .map(ingredientMapper::mapIngredientToDto)
+        final var values = ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest);
+        if (ingredientRepository.update(ingredientId, expectedVersion, values) == 0) {
+            if (!ingredientRepository.existsById(ingredientId)) {
+                throw new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId));
+            }
+            throw new PreconditionFailedException(String.format("Ingredient has changed for id: %s", ingredientId));
+        }
+
+        switchDefaultVariant(ingredientId, ingredientWriteRequest.getDefaultVariantId());
+        return getIngredientById(ingredientId);
+    }
+
+    /**
+     * Loads the ingredient and lets the dirty check write only the patched columns, guarded by the version of the
+     * loaded state. Switching the default variant changes the aggregate without touching the ingredient row, so the
+     * version is incremented for it explicitly, and only while it is still the one the patch was checked against.
+     * Otherwise a patch of only the default variant would have no versioned write at all.
+     */
+    @NonNull
+    @Override
+    public Versioned<IngredientDto> patchIngredient(
+        @NonNull final UUID ingredientId,
+        @Nullable final Long expectedVersion,
+        @NonNull final IngredientPatchRequest ingredientPatchRequest
+    ) {
+        final var ingredient = ingredientRepository.findById(ingredientId)
             .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+        checkVersion(expectedVersion, ingredient.getVersion(), "Ingredient", ingredientId);
+        final var patchedIngredient = ingredientRepository.saveAndFlush(
+            ingredientMapper.patchIngredient(ingredient, ingredientPatchRequest)
+        );
+
+        final var defaultVariantId = ingredientPatchRequest.getDefaultVariantId();
+        if (defaultVariantId.isPresent()) {
+            if (ingredientRepository.incrementVersion(ingredientId, patchedIngredient.getVersion()) == 0) {
+                throw new PreconditionFailedException(String.format("Ingredient has changed for id: %s", ingredientId));
+            }
+            switchDefaultVariant(ingredientId, defaultVariantId.get());
+        }
+        return getIngredientById(ingredientId);
     }
 
-    private void reconcileDefaultVariant(
-        @NonNull final Ingredient ingredient,
+    /**
+     * Moves the default flag to the given variant, or removes it if none is given, with one statement per step.
+     * Concurrent switches on the same ingredient are expected to be serialized by the ingredient row lock.
+     */
+    private void switchDefaultVariant(
+        @NonNull final UUID ingredientId,
         @Nullable final UUID defaultVariantId
     ) {
-        final var variants = Optional.ofNullable(ingredient.getIngredientVariants()).orElse(List.of());
-
-        final IngredientVariant newDefaultVariant;
+        ingredientVariantRepository.clearDefaultVariant(ingredientId);
         if (defaultVariantId == null) {
-            newDefaultVariant = null;
-        } else {
-            newDefaultVariant = variants.stream()
-                .filter(variant -> Objects.equals(variant.getId(), defaultVariantId))
-                .findFirst()
-                .orElseThrow(() -> new BadRequestException(
-                    String.format("Ingredient variant not found for id: %s", defaultVariantId)
-                ));
+            return;
+        }
+        if (ingredientVariantRepository.markDefaultVariant(ingredientId, defaultVariantId) == 0) {
+            throw new BadRequestException(String.format("Ingredient variant not found for id: %s", defaultVariantId));
         }
+    }
 
-        final var previousDefaults = variants.stream()
-            .filter(variant -> !Objects.equals(variant, newDefaultVariant))
-            .filter(IngredientVariant::getDefaultVariant)
-            .toList();
-        previousDefaults.forEach(variant -> variant.setDefaultVariant(false));
-        ingredientVariantRepository.saveAllAndFlush(previousDefaults);
+    /**
+     * Increments the version of the ingredient whenever one of its variants or custom units is written, so the version
+     * of the ingredient covers the whole aggregate. The ingredient row is always locked before any of its children,
+     * like {@link #updateIngredient(UUID, Long, IngredientWriteRequest)} does, which rules out lock order deadlocks.
+     * A concurrent change to a child that was read before is still caught by the version check of its own update.
+     */
+    private void lockIngredientForChildWrite(@NonNull final UUID ingredientId) {
+        if (ingredientRepository.incrementVersion(ingredientId) == 0) {
+            throw new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId));
+        }
+    }
 
-        if (newDefaultVariant != null) {
-            newDefaultVariant.setDefaultVariant(true);
-            ingredientVariantRepository.save(newDefaultVariant);
+    private static void checkVersion(
+        @Nullable final Long expectedVersion,
+        final long version,
+        @NonNull final String entityName,
+        @NonNull final UUID id
+    ) {
+        if (expectedVersion != null && expectedVersion != version) {
+            throw new PreconditionFailedException(String.format("%s has changed for id: %s", entityName, id));
         }
     }
 
     @Override
     public void deleteIngredient(@NonNull final UUID ingredientId) {
-        ingredientRepository.deleteById(ingredientId);
+        deleteIngredients(List.of(ingredientId));
+    }
+
+    /**
+     * Deletes the ingredients with a single statement. Their variants and custom units are removed by the database
+     * through the cascading foreign keys instead of being loaded and deleted one by one.
+     */
+    @Override
+    public void deleteIngredients(@NonNull final List<UUID> ingredientIds) {
+        ingredientRepository.deleteAllByIdInBatch(ingredientIds);
     }
 
     @NonNull
     @Override
-    public List<IngredientVariantDto> getIngredientVariantsByIngredientId(@NonNull final UUID ingredientId) {
-        return ingredientVariantRepository.findAllByIngredientId(ingredientId)
+    @Transactional(readOnly = true)
+    public Versioned<List<IngredientVariantDto>> getIngredientVariantsByIngredientId(
+        @NonNull final UUID ingredientId
+    ) {
+        // The version is read first, so a concurrent change can only make it older than the variants, never newer.
+        final var version = getIngredientVersion(ingredientId);
+        final var ingredientVariants = ingredientReadRepository
+            .findIngredientVariantsByIngredientIds(List.of(ingredientId))
             .stream()
             .map(ingredientVariantMapper::mapIngredientVariantToDto)
             .toList();
+        return new Versioned<>(ingredientVariants, version);
     }
 
     @NonNull
@@ -145,81 +743,161 @@ public class IngredientServiceImpl implements IngredientService {
         @NonNull final UUID ingredientId,
         @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest
     ) {
-        return ingredientRepository.findById(ingredientId)
-            .map(ingredient -> ingredientVariantMapper.mapWriteRequestToIngredientVariant(
-                ingredientVariantWriteRequest,
-                ingredient
-            ))
-            .map(ingredientVariantRepository::save)
-            .map(ingredientVariantMapper::mapIngredientVariantToDto)
-            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+        lockIngredientForChildWrite(ingredientId);
+        final var ingredientVariant = ingredientVariantMapper.mapWriteRequestToIngredientVariant(
+            ingredientVariantWriteRequest,
+            ingredientRepository.getReferenceById(ingredientId)
+        );
+        return ingredientVariantMapper.mapIngredientVariantToDto(ingredientVariantRepository.save(ingredientVariant));
     }
 
     @NonNull
     @Override
-    public IngredientVariantDto getIngredientVariantById(
+    @Transactional(readOnly = true)
+    public Versioned<IngredientVariantDto> getIngredientVariantById(
         @NonNull final UUID ingredientId,
         @NonNull final UUID variantId
     ) {
-        if (!ingredientRepository.existsById(ingredientId)) {
-            throw new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId));
-        }
-
-        return ingredientVariantRepository.findByIdAndIngredientId(variantId, ingredientId)
-            .map(ingredientVariantMapper::mapIngredientVariantToDto)
-            .orElseThrow(() -> new NotFoundException(String.format(
-                "Ingredient variant not found for id: %s",
-                variantId
-            )));
+        final var ingredientVariant = findIngredientVariant(ingredientId, variantId);
+        return new Versioned<>(
+            ingredientVariantMapper.mapIngredientVariantToDto(ingredientVariant),
+            ingredientVariant.getVersion()
+        );
     }
 
     @NonNull
     @Override
-    public IngredientVariantDto updateIngredientVariant(
+    public Versioned<IngredientVariantDto> updateIngredientVariant(
         @NonNull final UUID ingredientId,
         @NonNull final UUID variantId,
+        @Nullable final Long expectedVersion,
         @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest
     ) {
-        if (!ingredientRepository.existsById(ingredientId)) {
-            throw new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId));
-        }
+        final var ingredientVariant = findIngredientVariant(ingredientId, variantId);
+        checkVersion(expectedVersion, ingredientVariant.getVersion(), "Ingredient variant", variantId);
+        lockIngredientForChildWrite(ingredientId);
 
-        return ingredientVariantRepository.findByIdAndIngredientId(variantId, ingredientId)
-            .map(ingredientVariant -> ingredientVariantMapper.updateIngredientVariantFromWriteRequest(
+        final var savedIngredientVariant = ingredientVariantRepository.saveAndFlush(
+            ingredientVariantMapper.updateIngredientVariantFromWriteRequest(
                 ingredientVariant,
                 ingredientVariantWriteRequest
-            ))
-            .map(ingredientVariantRepository::save)
-            .map(ingredientVariantMapper::mapIngredientVariantToDto)
-            .orElseThrow(() -> new NotFoundException(String.format(
-                "Ingredient variant not found for id: %s",
-                variantId
-            )));
+            )
+        );
+        return new Versioned<>(
+            ingredientVariantMapper.mapIngredientVariantToDto(savedIngredientVariant),
+            savedIngredientVariant.getVersion()
+        );
     }
 
+    @NonNull
     @Override
-    public void deleteIngredientVariant(@NonNull final UUID ingredientId, @NonNull final UUID variantId) {
-        final var ingredient = ingredientRepository.findById(ingredientId)
-            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+    public Versioned<IngredientVariantDto> patchIngredientVariant(
+        @NonNull final UUID ingredientId,
+        @NonNull final UUID variantId,
+        @Nullable final Long expectedVersion,
+        @NonNull final IngredientVariantPatchRequest ingredientVariantPatchRequest
+    ) {
+        final var ingredientVariant = findIngredientVariant(ingredientId, variantId);
+        checkVersion(expectedVersion, ingredientVariant.getVersion(), "Ingredient variant", variantId);
+        lockIngredientForChildWrite(ingredientId);
 
-        final var removed = Optional.ofNullable(ingredient.getIngredientVariants())
-            .map(variants -> variants.removeIf(variant -> Objects.equals(variant.getId(), variantId)))
-            .orElse(false);
+        final var savedIngredientVariant = ingredientVariantRepository.saveAndFlush(
+            ingredientVariantMapper.patchIngredientVariant(ingredientVariant, ingredientVariantPatchRequest)
+        );
+        return new Versioned<>(
+            ingredientVariantMapper.mapIngredientVariantToDto(savedIngredientVariant),
+            savedIngredientVariant.getVersion()
+        );
+    }
 
-        if (!removed) {
+    @NonNull
+    private IngredientVariant findIngredientVariant(@NonNull final UUID ingredientId, @NonNull final UUID variantId) {
+        final var lookup = ingredientVariantRepository.lookupByIdAndIngredientId(variantId, ingredientId)
+            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+        final var ingredientVariant = lookup.ingredientVariant();
+        if (ingredientVariant == null) {
             throw new NotFoundException(String.format("Ingredient variant not found for id: %s", variantId));
         }
+        return ingredientVariant;
+    }
 
-        ingredientRepository.save(ingredient);
+    /**
+     * The diff leaves every description either kept or freed and only adds new ones, so no intermediate state can
+     * violate the unique description per ingredient. The default flag is never written here, which keeps the partial
+     * unique index on it satisfied as well. Updates only reach the database for variants that actually changed, the
+     * deletes are a single statement and the inserts are sent in JDBC batches on the final flush.
+     */
+    @NonNull
+    @Override
+    public Versioned<List<IngredientVariantDto>> replaceIngredientVariants(
+        @NonNull final UUID ingredientId,
+        @Nullable final Long expectedVersion,
+        @NonNull final List<IngredientVariantWriteRequest> ingredientVariantWriteRequests
+    ) {
+        final var addedVariantsByDescription = new LinkedHashMap<String, IngredientVariantWriteRequest>();
+        for (final var ingredientVariantWriteRequest : ingredientVariantWriteRequests) {
+            final var description = ingredientVariantWriteRequest.getDescription();
+            if (addedVariantsByDescription.putIfAbsent(description, ingredientVariantWriteRequest) != null) {
+                throw new BadRequestException(String.format(
+                    "Duplicate ingredient variant description: %s",
+                    description
+                ));
+            }
+        }
+        if (ingredientRepository.incrementVersion(ingredientId, expectedVersion) == 0) {
+            if (!ingredientRepository.existsById(ingredientId)) {
+                throw new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId));
+            }
+            throw new PreconditionFailedException(String.format("Ingredient has changed for id: %s", ingredientId));
+        }
+
+        final var removedVariants = new ArrayList<IngredientVariant>();
+        for (final var ingredientVariant : ingredientVariantRepository.findAllByIngredientId(ingredientId)) {
+            final var ingredientVariantWriteRequest = addedVariantsByDescription.remove(
+                ingredientVariant.getDescription()
+            );
+            if (ingredientVariantWriteRequest == null) {
+                removedVariants.add(ingredientVariant);
+            } else {
+                ingredientVariantMapper.updateIngredientVariantFromWriteRequest(
+                    ingredientVariant,
+                    ingredientVariantWriteRequest
+                );
+            }
+        }
+        ingredientVariantRepository.deleteAllInBatch(removedVariants);
+
+        final var ingredient = ingredientRepository.getReferenceById(ingredientId);
+        ingredientVariantRepository.saveAll(addedVariantsByDescription.values()
+            .stream()
+            .map(ingredientVariantWriteRequest -> ingredientVariantMapper.mapWriteRequestToIngredientVariant(
+                ingredientVariantWriteRequest,
+                ingredient
+            ))
+            .toList());
+        ingredientVariantRepository.flush();
+        return getIngredientVariantsByIngredientId(ingredientId);
+    }
+
+    @Override
+    public void deleteIngredientVariant(@NonNull final UUID ingredientId, @NonNull final UUID variantId) {
+        lockIngredientForChildWrite(ingredientId);
+        if (ingredientVariantRepository.deleteByIdAndIngredientId(variantId, ingredientId) == 0) {
+            throw new NotFoundException(String.format("Ingredient variant not found for id: %s", variantId));
+        }
     }
 
     @NonNull
     @Override
-    public List<CustomUnitDto> getCustomUnitsByIngredientId(@NonNull final UUID ingredientId) {
-        return customUnitRepository.findAllByIngredientId(ingredientId)
+    @Transactional(readOnly = true)
+    public Versioned<List<CustomUnitDto>> getCustomUnitsByIngredientId(@NonNull final UUID ingredientId) {
+        // Same order as for the variants, so the version never claims changes the custom units do not contain yet.
+        final var version = getIngredientVersion(ingredientId);
+        final var customUnits = ingredientReadRepository.findCustomUnitsByIngredientIds(List.of(ingredientId))
             .stream()
             .map(customUnitMapper::mapCustomUnitToDto)
             .toList();
+        return new Versioned<>(customUnits, version);
     }
 
     @NonNull
@@ -228,64 +906,77 @@ public class IngredientServiceImpl implements IngredientService {
         @NonNull final UUID ingredientId,
         @NonNull final CustomUnitWriteRequest customUnitWriteRequest
     ) {
-        return ingredientRepository.findById(ingredientId)
-            .map(ingredient -> customUnitMapper.mapWriteRequestToCustomUnit(customUnitWriteRequest, ingredient))
-            .map(customUnitRepository::save)
-            .map(customUnitMapper::mapCustomUnitToDto)
-            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+        lockIngredientForChildWrite(ingredientId);
+        final var customUnit = customUnitMapper.mapWriteRequestToCustomUnit(
+            customUnitWriteRequest,
+            ingredientRepository.getReferenceById(ingredientId)
+        );
+        return customUnitMapper.mapCustomUnitToDto(customUnitRepository.save(customUnit));
     }
 
     @NonNull
     @Override
-    public CustomUnitDto getCustomUnitById(
+    @Transactional(readOnly = true)
+    public Versioned<CustomUnitDto> getCustomUnitById(
         @NonNull final UUID ingredientId,
         @NonNull final UUID unitId
     ) {
-        if (!ingredientRepository.existsById(ingredientId)) {
-            throw new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId));
-        }
-
-        return customUnitRepository.findByIdAndIngredientId(unitId, ingredientId)
-            .map(customUnitMapper::mapCustomUnitToDto)
-            .orElseThrow(() -> new NotFoundException(String.format(
-                "Custom unit not found for id: %s",
-                unitId
-            )));
+        final var customUnit = findCustomUnit(ingredientId, unitId);
+        return new Versioned<>(customUnitMapper.mapCustomUnitToDto(customUnit), customUnit.getVersion());
     }
 
     @NonNull
     @Override
-    public CustomUnitDto updateCustomUnit(
+    public Versioned<CustomUnitDto> updateCustomUnit(
         @NonNull final UUID ingredientId,
         @NonNull final UUID unitId,
+        @Nullable final Long expectedVersion,
         @NonNull final CustomUnitWriteRequest customUnitWriteRequest
     ) {
-        if (!ingredientRepository.existsById(ingredientId)) {
-            throw new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId));
-        }
+        final var customUnit = findCustomUnit(ingredientId, unitId);
+        checkVersion(expectedVersion, customUnit.getVersion(), "Custom unit", unitId);
+        lockIngredientForChildWrite(ingredientId);
 
-        return customUnitRepository.findByIdAndIngredientId(unitId, ingredientId)
-            .map(customUnit -> customUnitMapper.updateCustomUnitFromWriteRequest(customUnit, customUnitWriteRequest))
-            .map(customUnitRepository::save)
-            .map(customUnitMapper::mapCustomUnitToDto)
-            .orElseThrow(() -> new NotFoundException(String.format(
-                "Custom unit not found for id: %s",
-                unitId
-            )));
+        final var savedCustomUnit = customUnitRepository.saveAndFlush(
+            customUnitMapper.updateCustomUnitFromWriteRequest(customUnit, customUnitWriteRequest)
+        );
+        return new Versioned<>(customUnitMapper.mapCustomUnitToDto(savedCustomUnit), savedCustomUnit.getVersion());
     }
 
-    public void deleteCustomUnit(@NonNull final UUID ingredientId, @NonNull final UUID unitId) {
-        final var ingredient = ingredientRepository.findById(ingredientId)
-            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+    @NonNull
+    @Override
+    public Versioned<CustomUnitDto> patchCustomUnit(
+        @NonNull final UUID ingredientId,
+        @NonNull final UUID unitId,
+        @Nullable final Long expectedVersion,
+        @NonNull final CustomUnitPatchRequest customUnitPatchRequest
+    ) {
+        final var customUnit = findCustomUnit(ingredientId, unitId);
+        checkVersion(expectedVersion, customUnit.getVersion(), "Custom unit", unitId);
+        lockIngredientForChildWrite(ingredientId);
 
-        final var removed = Optional.ofNullable(ingredient.getCustomUnits())
-            .map(customUnits -> customUnits.removeIf(customUnit -> Objects.equals(customUnit.getId(), unitId)))
-            .orElse(false);
+        final var savedCustomUnit = customUnitRepository.saveAndFlush(
+            customUnitMapper.patchCustomUnit(customUnit, customUnitPatchRequest)
+        );
+        return new Versioned<>(customUnitMapper.mapCustomUnitToDto(savedCustomUnit), savedCustomUnit.getVersion());
+    }
 
-        if (!removed) {
+    @NonNull
+    private CustomUnit findCustomUnit(@NonNull final UUID ingredientId, @NonNull final UUID unitId) {
+        final var lookup = customUnitRepository.lookupByIdAndIngredientId(unitId, ingredientId)
+            .orElseThrow(() -> new NotFoundException(String.format("Ingredient not found for id: %s", ingredientId)));
+        final var customUnit = lookup.customUnit();
+        if (customUnit == null) {
             throw new NotFoundException(String.format("Custom unit not found for id: %s", unitId));
         }
+        return customUnit;
+    }
 
-        ingredientRepository.save(ingredient);
+    @Override
+    public void deleteCustomUnit(@NonNull final UUID ingredientId, @NonNull final UUID unitId) {
+        lockIngredientForChildWrite(ingredientId);
+        if (customUnitRepository.deleteByIdAndIngredientId(unitId, ingredientId) == 0) {
+            throw new NotFoundException(String.format("Custom unit not found for id: %s", unitId));
+        }
     }
 }
@@ -0,0 +1,8 @@
+package net.fuzzyhome.home.services.errors;
+
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package net.fuzzyhome.home.services.errors;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(final String message) {
+        super(message);
+    }
+}
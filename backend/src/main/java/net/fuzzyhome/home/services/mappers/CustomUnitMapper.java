@@ -1,10 +1,13 @@
 package net.fuzzyhome.home.services.mappers;
 
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.Ingredient;
+import net.fuzzyhome.home.database.projections.CustomUnitProjection;
 import org.jspecify.annotations.NonNull;
 import org.openapitools.model.CustomUnitDto;
+import org.openapitools.model.CustomUnitPatchRequest;
 import org.openapitools.model.CustomUnitWriteRequest;
 import org.springframework.stereotype.Component;
 
@@ -22,6 +25,16 @@ public class CustomUnitMapper {
             .build();
     }
 
+    @NonNull
+    public CustomUnitDto mapCustomUnitToDto(@NonNull final CustomUnitProjection customUnit) {
+        return CustomUnitDto.builder()
+            .id(customUnit.id())
+            .name(customUnit.name())
+            .customUnitToConversionUnitFactor(customUnit.customUnitToConversionUnitFactor())
+            .conversionUnit(UnitUtils.mapGenericUnitToDto(customUnit.conversionUnit()))
+            .build();
+    }
+
     @NonNull
     public CustomUnit mapWriteRequestToCustomUnit(
         @NonNull final CustomUnitWriteRequest customUnitWriteRequest,
@@ -45,4 +58,22 @@ public class CustomUnitMapper {
         customUnit.setConversionUnit(UnitUtils.mapDtoToGenericUnit(customUnitWriteRequest.getConversionUnit()));
         return customUnit;
     }
+
+    /**
+     * Applies a JSON merge patch. Fields absent from the patch keep their value, so the dirty check only finds the
+     * patched ones.
+     */
+    @NonNull
+    public CustomUnit patchCustomUnit(
+        @NonNull final CustomUnit customUnit,
+        @NonNull final CustomUnitPatchRequest customUnitPatchRequest
+    ) {
+        Optional.ofNullable(customUnitPatchRequest.getName())
+            .ifPresent(customUnit::setName);
+        customUnitPatchRequest.getCustomUnitToConversionUnitFactor()
+            .ifPresent(customUnit::setCustomUnitToConversionUnitFactor);
+        customUnitPatchRequest.getConversionUnit()
+            .ifPresent(unit -> customUnit.setConversionUnit(UnitUtils.mapDtoToGenericUnit(unit)));
+        return customUnit;
+    }
 }
@@ -1,11 +1,20 @@
 package net.fuzzyhome.home.services.mappers;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.Ingredient;
+import net.fuzzyhome.home.database.entities.IngredientVariant;
+import net.fuzzyhome.home.database.projections.CustomUnitProjection;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.database.projections.IngredientVariantProjection;
 import org.jspecify.annotations.NonNull;
+import org.openapitools.model.IngredientBatchWriteRequest;
 import org.openapitools.model.IngredientDto;
+import org.openapitools.model.IngredientPatchRequest;
 import org.openapitools.model.IngredientWriteRequest;
 import org.springframework.stereotype.Component;
 
@@ -18,20 +27,53 @@ public class IngredientMapper {
 
     @NonNull
     public IngredientDto mapIngredientToDto(@NonNull final Ingredient ingredient) {
+        return mapIngredientToDto(
+            ingredient,
+            Optional.ofNullable(ingredient.getIngredientVariants()).orElse(List.of()),
+            Optional.ofNullable(ingredient.getCustomUnits()).orElse(List.of())
+        );
+    }
+
+    /**
+     * Maps an ingredient whose children were loaded separately, without touching its lazy collections.
+     */
+    @NonNull
+    public IngredientDto mapIngredientToDto(
+        @NonNull final Ingredient ingredient,
+        @NonNull final List<IngredientVariant> ingredientVariants,
+        @NonNull final List<CustomUnit> customUnits
+    ) {
         return IngredientDto.builder()
             .id(ingredient.getId())
             .name(ingredient.getName())
             .weightToVolumeConversionFactor(ingredient.getWeightToVolumeConversionFactor())
             .conversionWeightUnit(UnitUtils.mapWeightUnitToDto(ingredient.getConversionWeightUnit()))
             .conversionVolumeUnit(UnitUtils.mapVolumeUnitToDto(ingredient.getConversionVolumeUnit()))
-            .ingredientVariants(Optional.ofNullable(ingredient.getIngredientVariants())
-                .orElse(List.of())
-                .stream()
+            .ingredientVariants(ingredientVariants.stream()
                 .map(ingredientVariantMapper::mapIngredientVariantToDto)
                 .toList())
-            .customUnits(Optional.ofNullable(ingredient.getCustomUnits())
-                .orElse(List.of())
-                .stream()
+            .customUnits(customUnits.stream()
+                .map(customUnitMapper::mapCustomUnitToDto)
+                .toList())
+            .build();
+    }
+
+    @NonNull
+    public IngredientDto mapIngredientToDto(
+        @NonNull final IngredientProjection ingredient,
+        @NonNull final List<IngredientVariantProjection> ingredientVariants,
+        @NonNull final List<CustomUnitProjection> customUnits
+    ) {
+        return IngredientDto.builder()
+            .id(ingredient.id())
+            .name(ingredient.name())
+            .weightToVolumeConversionFactor(ingredient.weightToVolumeConversionFactor())
+            .conversionWeightUnit(UnitUtils.mapWeightUnitToDto(ingredient.conversionWeightUnit()))
+            .conversionVolumeUnit(UnitUtils.mapVolumeUnitToDto(ingredient.conversionVolumeUnit()))
+            .ingredientVariants(ingredientVariants.stream()
+                .map(ingredientVariantMapper::mapIngredientVariantToDto)
+                .toList())
+            .customUnits(customUnits.stream()
                 .map(customUnitMapper::mapCustomUnitToDto)
                 .toList())
             .build();
@@ -47,6 +89,30 @@ public class IngredientMapper {
             .build();
     }
 
+    /**
+     * Maps an ingredient of a batch together with its children, which are persisted by cascade with the ingredient.
+     */
+    @NonNull
+    public Ingredient mapBatchWriteRequestToIngredient(
+        @NonNull final IngredientBatchWriteRequest ingredientBatchWriteRequest
+    ) {
+        final var ingredient = mapWriteRequestToIngredient(ingredientBatchWriteRequest.getIngredient());
+        ingredient.setIngredientVariants(Optional.ofNullable(ingredientBatchWriteRequest.getIngredientVariants())
+            .orElse(List.of())
+            .stream()
+            .map(ingredientVariant -> ingredientVariantMapper.mapWriteRequestToIngredientVariant(
+                ingredientVariant,
+                ingredient
+            ))
+            .collect(Collectors.toCollection(ArrayList::new)));
+        ingredient.setCustomUnits(Optional.ofNullable(ingredientBatchWriteRequest.getCustomUnits())
+            .orElse(List.of())
+            .stream()
+            .map(customUnit -> customUnitMapper.mapWriteRequestToCustomUnit(customUnit, ingredient))
+            .collect(Collectors.toCollection(ArrayList::new)));
+        return ingredient;
+    }
+
     @NonNull
     public Ingredient updateIngredientFromWriteRequest(
         @NonNull final Ingredient ingredient,
@@ -62,4 +128,25 @@ public class IngredientMapper {
         );
         return ingredient;
     }
+
+    /**
+     * Applies a JSON merge patch to the fields of the ingredient itself. Fields absent from the patch keep their value,
+     * so the dirty check only finds the patched ones. The default variant is switched separately, under a version
+     * check of its own, as no field of the ingredient carries that change.
+     */
+    @NonNull
+    public Ingredient patchIngredient(
+        @NonNull final Ingredient ingredient,
+        @NonNull final IngredientPatchRequest ingredientPatchRequest
+    ) {
+        Optional.ofNullable(ingredientPatchRequest.getName())
+            .ifPresent(ingredient::setName);
+        ingredientPatchRequest.getWeightToVolumeConversionFactor()
+            .ifPresent(ingredient::setWeightToVolumeConversionFactor);
+        ingredientPatchRequest.getConversionWeightUnit()
+            .ifPresent(unit -> ingredient.setConversionWeightUnit(UnitUtils.mapDtoToWeightUnit(unit)));
+        ingredientPatchRequest.getConversionVolumeUnit()
+            .ifPresent(unit -> ingredient.setConversionVolumeUnit(UnitUtils.mapDtoToVolumeUnit(unit)));
+        return ingredient;
+    }
 }
@@ -1,10 +1,13 @@
 package net.fuzzyhome.home.services.mappers;
 
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import net.fuzzyhome.home.database.entities.Ingredient;
 import net.fuzzyhome.home.database.entities.IngredientVariant;
+import net.fuzzyhome.home.database.projections.IngredientVariantProjection;
 import org.jspecify.annotations.NonNull;
 import org.openapitools.model.IngredientVariantDto;
+import org.openapitools.model.IngredientVariantPatchRequest;
 import org.openapitools.model.IngredientVariantWriteRequest;
 import org.springframework.stereotype.Component;
 
@@ -30,6 +33,26 @@ public class IngredientVariantMapper {
             .build();
     }
 
+    @NonNull
+    public IngredientVariantDto mapIngredientVariantToDto(
+        @NonNull final IngredientVariantProjection ingredientVariant
+    ) {
+        return IngredientVariantDto.builder()
+            .id(ingredientVariant.id())
+            .description(ingredientVariant.description())
+            .defaultVariant(ingredientVariant.defaultVariant())
+            .unit(UnitUtils.mapGenericUnitToDto(ingredientVariant.unit()))
+            .servingSize(ingredientVariant.servingSize())
+            .calories(ingredientVariant.calories())
+            .carbohydrate(ingredientVariant.carbohydrate())
+            .fat(ingredientVariant.fat())
+            .protein(ingredientVariant.protein())
+            .saturatedFat(ingredientVariant.saturatedFat())
+            .sodium(ingredientVariant.sodium())
+            .sugar(ingredientVariant.sugar())
+            .build();
+    }
+
     @NonNull
     public IngredientVariant mapWriteRequestToIngredientVariant(
         @NonNull final IngredientVariantWriteRequest ingredientVariantWriteRequest,
@@ -69,4 +92,28 @@ public class IngredientVariantMapper {
 
         return ingredientVariant;
     }
+
+    /**
+     * Applies a JSON merge patch. Fields absent from the patch keep their value, so the dirty check only finds the
+     * patched ones.
+     */
+    @NonNull
+    public IngredientVariant patchIngredientVariant(
+        @NonNull final IngredientVariant ingredientVariant,
+        @NonNull final IngredientVariantPatchRequest ingredientVariantPatchRequest
+    ) {
+        Optional.ofNullable(ingredientVariantPatchRequest.getDescription())
+            .ifPresent(ingredientVariant::setDescription);
+        ingredientVariantPatchRequest.getUnit()
+            .ifPresent(unit -> ingredientVariant.setUnit(UnitUtils.mapDtoToGenericUnit(unit)));
+        ingredientVariantPatchRequest.getServingSize().ifPresent(ingredientVariant::setServingSize);
+        ingredientVariantPatchRequest.getCalories().ifPresent(ingredientVariant::setCalories);
+        ingredientVariantPatchRequest.getCarbohydrate().ifPresent(ingredientVariant::setCarbohydrate);
+        ingredientVariantPatchRequest.getFat().ifPresent(ingredientVariant::setFat);
+        ingredientVariantPatchRequest.getProtein().ifPresent(ingredientVariant::setProtein);
+        ingredientVariantPatchRequest.getSaturatedFat().ifPresent(ingredientVariant::setSaturatedFat);
+        ingredientVariantPatchRequest.getSodium().ifPresent(ingredientVariant::setSodium);
+        ingredientVariantPatchRequest.getSugar().ifPresent(ingredientVariant::setSugar);
+        return ingredientVariant;
+    }
 }
@@ -0,0 +1,52 @@
+package net.fuzzyhome.home.services.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import net.fuzzyhome.home.database.projections.IngredientJson;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.services.errors.BadRequestException;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Position of an ingredient within the (name, id) ordering of the ingredient listing. Clients only ever see the
+ * encoded form, which is opaque to them.
+ */
+public record IngredientCursor(
+    @NonNull String name,
+    @NonNull UUID id
+) {
+
+    private static final char SEPARATOR = ':';
+
+    @NonNull
+    public static IngredientCursor of(@NonNull final IngredientProjection ingredient) {
+        return new IngredientCursor(ingredient.name(), ingredient.id());
+    }
+
+    @NonNull
+    public static IngredientCursor of(@NonNull final IngredientJson ingredient) {
+        return new IngredientCursor(ingredient.name(), ingredient.id());
+    }
+
+    @NonNull
+    public static IngredientCursor decode(@NonNull final String encodedCursor) {
+        try {
+            final var decoded = new String(Base64.getUrlDecoder().decode(encodedCursor), StandardCharsets.UTF_8);
+            final var separatorIndex = decoded.indexOf(SEPARATOR);
+            return new IngredientCursor(
+                decoded.substring(separatorIndex + 1),
+                UUID.fromString(decoded.substring(0, separatorIndex))
+            );
+        } catch (final IllegalArgumentException | IndexOutOfBoundsException exception) {
+            throw new BadRequestException(String.format("Invalid cursor: %s", encodedCursor));
+        }
+    }
+
+    @NonNull
+    public String encode() {
+        return Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString((id.toString() + SEPARATOR + name).getBytes(StandardCharsets.UTF_8));
+    }
+}
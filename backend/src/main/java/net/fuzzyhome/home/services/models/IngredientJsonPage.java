@@ -0,0 +1,15 @@
+package net.fuzzyhome.home.services.models;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Same as {@link IngredientPage}, with the ingredients already rendered as a JSON array.
+ */
+public record IngredientJsonPage(
+    byte @NonNull [] ingredients,
+    @Nullable String nextCursor,
+    @Nullable Long estimatedTotalCount,
+    @NonNull String version
+) {
+}
@@ -0,0 +1,18 @@
+package net.fuzzyhome.home.services.models;
+
+import java.util.List;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.openapitools.model.IngredientDto;
+
+/**
+ * A page of ingredients. The version of the page changes whenever an ingredient enters or leaves the page or any of
+ * them changes, see {@link net.fuzzyhome.home.services.IngredientService#getIngredientsVersion}.
+ */
+public record IngredientPage(
+    @NonNull List<IngredientDto> ingredients,
+    @Nullable String nextCursor,
+    @Nullable Long estimatedTotalCount,
+    @NonNull String version
+) {
+}
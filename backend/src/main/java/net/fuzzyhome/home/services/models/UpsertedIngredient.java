@@ -0,0 +1,13 @@
+package net.fuzzyhome.home.services.models;
+
+import org.jspecify.annotations.NonNull;
+import org.openapitools.model.IngredientDto;
+
+/**
+ * An ingredient after an upsert by its name, and whether the upsert created it.
+ */
+public record UpsertedIngredient(
+    @NonNull Versioned<IngredientDto> ingredient,
+    boolean created
+) {
+}
@@ -0,0 +1,12 @@
+package net.fuzzyhome.home.services.models;
+
+import org.jspecify.annotations.NonNull;
+
+/**
+ * A representation together with the version of the entity it was read from, which callers expose as entity tag.
+ */
+public record Versioned<T>(
+    @NonNull T value,
+    long version
+) {
+}
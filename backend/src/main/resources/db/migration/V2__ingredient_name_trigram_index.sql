@@ -0,0 +1,3 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_ingredient_name_trgm ON ingredient USING gin (name gin_trgm_ops);
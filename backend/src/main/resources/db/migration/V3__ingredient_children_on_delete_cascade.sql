@@ -0,0 +1,18 @@
+-- Runs outside of a transaction (see the .conf file) so that every statement commits on its own. Swapping each
+-- foreign key in one ALTER TABLE leaves no window without a constraint, NOT VALID skips the scan of existing rows,
+-- which the separate VALIDATE statement then does under a lock that does not block writes.
+ALTER TABLE custom_unit
+    DROP CONSTRAINT FK_CUSTOMUNIT_ON_INGREDIENT,
+    ADD CONSTRAINT FK_CUSTOMUNIT_ON_INGREDIENT FOREIGN KEY (ingredient_id) REFERENCES ingredient (id)
+        ON DELETE CASCADE NOT VALID;
+
+ALTER TABLE custom_unit
+    VALIDATE CONSTRAINT FK_CUSTOMUNIT_ON_INGREDIENT;
+
+ALTER TABLE ingredient_variant
+    DROP CONSTRAINT FK_INGREDIENTVARIANT_ON_INGREDIENT,
+    ADD CONSTRAINT FK_INGREDIENTVARIANT_ON_INGREDIENT FOREIGN KEY (ingredient_id) REFERENCES ingredient (id)
+        ON DELETE CASCADE NOT VALID;
+
+ALTER TABLE ingredient_variant
+    VALIDATE CONSTRAINT FK_INGREDIENTVARIANT_ON_INGREDIENT;
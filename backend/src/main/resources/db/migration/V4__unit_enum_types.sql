@@ -0,0 +1,40 @@
+CREATE TYPE weight_unit AS ENUM (
+    'GRAM',
+    'MILLIGRAM',
+    'KILOGRAM',
+    'OUNCE',
+    'POUND'
+    );
+
+CREATE TYPE volume_unit AS ENUM (
+    'MILLILITER',
+    'LITER',
+    'FLUID_OUNCE',
+    'TEASPOON',
+    'TABLESPOON',
+    'CUP'
+    );
+
+CREATE TYPE generic_unit AS ENUM (
+    'GRAM',
+    'MILLIGRAM',
+    'KILOGRAM',
+    'OUNCE',
+    'POUND',
+    'MILLILITER',
+    'LITER',
+    'FLUID_OUNCE',
+    'TEASPOON',
+    'TABLESPOON',
+    'CUP'
+    );
+
+ALTER TABLE ingredient
+    ALTER COLUMN conversion_weight_unit TYPE weight_unit USING CAST(conversion_weight_unit AS weight_unit),
+    ALTER COLUMN conversion_volume_unit TYPE volume_unit USING CAST(conversion_volume_unit AS volume_unit);
+
+ALTER TABLE ingredient_variant
+    ALTER COLUMN unit TYPE generic_unit USING CAST(unit AS generic_unit);
+
+ALTER TABLE custom_unit
+    ALTER COLUMN conversion_unit TYPE generic_unit USING CAST(conversion_unit AS generic_unit);
@@ -0,0 +1,8 @@
+ALTER TABLE ingredient
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE ingredient_variant
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE custom_unit
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
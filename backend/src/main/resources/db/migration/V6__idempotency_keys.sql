@@ -0,0 +1,11 @@
+CREATE TABLE idempotency_key
+(
+    scope           VARCHAR(64)              NOT NULL,
+    idempotency_key VARCHAR(255)             NOT NULL,
+    request_hash    VARCHAR(32)              NOT NULL,
+    response        BYTEA,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    CONSTRAINT pk_idempotencykey PRIMARY KEY (scope, idempotency_key)
+);
+
+CREATE INDEX idx_idempotencykey_created_at ON idempotency_key (created_at);
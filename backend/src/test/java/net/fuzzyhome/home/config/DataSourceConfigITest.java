@@ -0,0 +1,195 @@
+package net.fuzzyhome.home.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.SneakyThrows;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against a primary and a replica database of their own rather than the single embedded database of the other
+ * tests, which replaces the routing data source.
+ */
+@SpringBootTest
+class DataSourceConfigITest {
+
+    private static final String PORT_QUERY = "select inet_server_port()";
+
+    private static EmbeddedPostgres primary;
+    private static EmbeddedPostgres replica;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private WorkloadRoutingDataSource dataSource;
+
+    @BeforeAll
+    static void startDatabases() throws IOException {
+        primary = EmbeddedPostgres.start();
+        replica = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopDatabases() throws IOException {
+        primary.close();
+        replica.close();
+    }
+
+    @DynamicPropertySource
+    static void databaseProperties(final DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> primary.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("app.datasource.replica.url", () -> replica.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.transaction.default-timeout", () -> "42s");
+    }
+
+    @Test
+    void readOnlyTransactionsReadFromReplica() {
+        // given
+        final var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // when
+        final var port = readOnly.execute(status -> jdbcTemplate.queryForObject(PORT_QUERY, Integer.class));
+
+        // then
+        assertThat(port).isEqualTo(replica.getPort());
+    }
+
+    @Test
+    void readWriteTransactionsUsePrimary() {
+        // when
+        final var port = new TransactionTemplate(transactionManager)
+            .execute(status -> jdbcTemplate.queryForObject(PORT_QUERY, Integer.class));
+
+        // then
+        assertThat(port).isEqualTo(primary.getPort());
+    }
+
+    @Test
+    void workOutsideOfTransactionsUsesPrimary() {
+        // when
+        final var port = jdbcTemplate.queryForObject(PORT_QUERY, Integer.class);
+
+        // then
+        assertThat(port).isEqualTo(primary.getPort());
+    }
+
+    @SneakyThrows
+    @Test
+    void readOnlyTransactionsUseReadOnlyConnectionsWithoutFlushing() {
+        // given
+        final var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // when
+        final var session = readOnly.execute(status -> {
+            final var current = entityManager.unwrap(Session.class);
+            return new SessionState(current.doReturningWork(Connection::isReadOnly), current.getHibernateFlushMode());
+        });
+
+        // then
+        assertThat(session).isEqualTo(new SessionState(true, FlushMode.MANUAL));
+    }
+
+    @Test
+    void transactionsTakeConnectionsFromPoolOfTheirWorkload() {
+        // given
+        final var write = new DefaultTransactionAttribute();
+        final var read = new DefaultTransactionAttribute();
+        read.setReadOnly(true);
+        final var batch = new DefaultTransactionAttribute();
+        batch.setLabels(List.of(Workload.BATCH_LABEL));
+        final var readOnlyBatch = new DefaultTransactionAttribute();
+        readOnlyBatch.setLabels(List.of(Workload.BATCH_LABEL));
+        readOnlyBatch.setReadOnly(true);
+
+        // when / then
+        assertThat(activePoolsIn(write)).containsExactly(Workload.WRITE);
+        assertThat(activePoolsIn(read)).containsExactly(Workload.READ);
+        assertThat(activePoolsIn(batch)).containsExactly(Workload.BATCH);
+        assertThat(activePoolsIn(readOnlyBatch)).containsExactly(Workload.BATCH);
+        assertThat(WorkloadRoutingDataSource.current()).isNull();
+    }
+
+    @Test
+    void requiresNewRestoresWorkloadOfOuterTransaction() {
+        // given
+        final var outer = new TransactionTemplate(transactionManager);
+        outer.setReadOnly(true);
+        final var inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // when
+        final var workloads = outer.execute(status -> {
+            final var innerPools = inner.execute(innerStatus -> activePools());
+            return List.of(innerPools, Set.of(WorkloadRoutingDataSource.current()));
+        });
+
+        // then
+        assertThat(workloads).containsExactly(
+            Set.of(Workload.READ, Workload.WRITE),
+            Set.of(Workload.READ)
+        );
+        assertThat(WorkloadRoutingDataSource.current()).isNull();
+    }
+
+    @Test
+    void transactionManagerIsCustomizedLikeBootsOwn() {
+        // when
+        final var defaultTimeout = ((WorkloadJpaTransactionManager) transactionManager).getDefaultTimeout();
+
+        // then
+        assertThat(defaultTimeout).isEqualTo(42);
+    }
+
+    private Set<Object> activePoolsIn(final TransactionDefinition definition) {
+        final var transaction = transactionManager.getTransaction(definition);
+        try {
+            return activePools();
+        } finally {
+            transactionManager.commit(transaction);
+        }
+    }
+
+    private Set<Object> activePools() {
+        return dataSource.getResolvedDataSources().entrySet().stream()
+            .filter(entry -> {
+                final var pool = ((HikariDataSource) entry.getValue()).getHikariPoolMXBean();
+                return pool != null && pool.getActiveConnections() > 0;
+            })
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+    }
+
+    private record SessionState(boolean readOnlyConnection, FlushMode flushMode) {
+    }
+}
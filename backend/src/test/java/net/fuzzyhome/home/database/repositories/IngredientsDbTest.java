@@ -4,16 +4,24 @@ import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.Ingredient;
 import net.fuzzyhome.home.database.entities.IngredientVariant;
+import net.fuzzyhome.home.database.enums.VolumeUnit;
+import net.fuzzyhome.home.database.enums.WeightUnit;
+import net.fuzzyhome.home.database.projections.CustomUnitLookup;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.database.projections.IngredientUpsert;
+import net.fuzzyhome.home.database.projections.IngredientVariantLookup;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchException;
@@ -21,17 +29,30 @@ import static org.instancio.Select.field;
 
 @AutoConfigureEmbeddedDatabase
 @DataJpaTest
+@Import({IngredientImportRepository.class, IngredientReadRepository.class, IngredientUpsertRepository.class})
 class IngredientsDbTest {
 
     @Autowired
     private CustomUnitRepository customUnitRepository;
 
+    @Autowired
+    private IngredientImportRepository ingredientImportRepository;
+
+    @Autowired
+    private IngredientReadRepository ingredientReadRepository;
+
     @Autowired
     private IngredientRepository ingredientRepository;
 
+    @Autowired
+    private IngredientUpsertRepository ingredientUpsertRepository;
+
     @Autowired
     private IngredientVariantRepository ingredientVariantRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @BeforeEach
     void setUp() {
         customUnitRepository.deleteAll();
@@ -57,6 +78,27 @@ class IngredientsDbTest {
             .isEqualTo(ingredient);
     }
 
+    @Test
+    void ingredients_get_time_ordered_ids() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(50)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getCustomUnits))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .create();
+
+        // when
+        final var ids = ingredients.stream()
+            .map(ingredientRepository::save)
+            .map(Ingredient::getId)
+            .toList();
+
+        // then
+        assertThat(ids).allSatisfy(id -> assertThat(id).extracting(UUID::version).isEqualTo(7))
+            .isSorted();
+    }
+
     @Test
     void custom_unit_gets_created_through_ingredient() {
         // given
@@ -205,7 +247,7 @@ class IngredientsDbTest {
     }
 
     @Test
-    void retrieve_ingredient_variant_by_id_and_ingredient_id() {
+    void lookup_ingredient_variant_by_id_and_ingredient_id() {
         // given
         final var ingredientVariant = Instancio.of(IngredientVariant.class)
             .ignore(field(IngredientVariant::getId))
@@ -225,24 +267,34 @@ class IngredientsDbTest {
             .ignore(field(Ingredient::getIngredientVariants))
             .create();
         ingredientRepository.saveAndFlush(otherIngredient);
+        entityManager.clear();
 
         // when
-        final var result = ingredientVariantRepository.findByIdAndIngredientId(
+        final var result = ingredientVariantRepository.lookupByIdAndIngredientId(
             Objects.requireNonNull(ingredientVariant.getId()),
             Objects.requireNonNull(ingredient.getId())
         );
-        final var mismatchedResult = ingredientVariantRepository.findByIdAndIngredientId(
+        final var mismatchedResult = ingredientVariantRepository.lookupByIdAndIngredientId(
             Objects.requireNonNull(ingredientVariant.getId()),
             Objects.requireNonNull(otherIngredient.getId())
         );
+        final var missingIngredientResult = ingredientVariantRepository.lookupByIdAndIngredientId(
+            Objects.requireNonNull(ingredientVariant.getId()),
+            UUID.randomUUID()
+        );
 
         // then
-        assertThat(result).contains(ingredientVariant);
-        assertThat(mismatchedResult).isEmpty();
+        assertThat(result).get()
+            .extracting(IngredientVariantLookup::ingredientVariant)
+            .isEqualTo(ingredientVariant);
+        assertThat(mismatchedResult).get()
+            .extracting(IngredientVariantLookup::ingredientVariant)
+            .isNull();
+        assertThat(missingIngredientResult).isEmpty();
     }
 
     @Test
-    void retrieve_custom_units_by_ingredient_id() {
+    void lookup_custom_unit_by_id_and_ingredient_id() {
         // given
         final var customUnit = Instancio.of(CustomUnit.class)
             .ignore(field(CustomUnit::getId))
@@ -254,20 +306,42 @@ class IngredientsDbTest {
             .set(field(Ingredient::getCustomUnits), List.of(customUnit))
             .create();
         customUnit.setIngredient(ingredient);
-        ingredientRepository.save(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+
+        final var otherIngredient = Instancio.of(Ingredient.class)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getCustomUnits))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .create();
+        ingredientRepository.saveAndFlush(otherIngredient);
+        entityManager.clear();
 
         // when
-        final var result = Optional.ofNullable(ingredient.getId())
-            .map(customUnitRepository::findAllByIngredientId)
-            .orElse(List.of());
+        final var result = customUnitRepository.lookupByIdAndIngredientId(
+            Objects.requireNonNull(customUnit.getId()),
+            Objects.requireNonNull(ingredient.getId())
+        );
+        final var mismatchedResult = customUnitRepository.lookupByIdAndIngredientId(
+            Objects.requireNonNull(customUnit.getId()),
+            Objects.requireNonNull(otherIngredient.getId())
+        );
+        final var missingIngredientResult = customUnitRepository.lookupByIdAndIngredientId(
+            Objects.requireNonNull(customUnit.getId()),
+            UUID.randomUUID()
+        );
 
         // then
-        assertThat(result).singleElement()
+        assertThat(result).get()
+            .extracting(CustomUnitLookup::customUnit)
             .isEqualTo(customUnit);
+        assertThat(mismatchedResult).get()
+            .extracting(CustomUnitLookup::customUnit)
+            .isNull();
+        assertThat(missingIngredientResult).isEmpty();
     }
 
     @Test
-    void retrieve_custom_unit_by_id_and_ingredient_id() {
+    void retrieve_custom_units_by_ingredient_id() {
         // given
         final var customUnit = Instancio.of(CustomUnit.class)
             .ignore(field(CustomUnit::getId))
@@ -279,28 +353,16 @@ class IngredientsDbTest {
             .set(field(Ingredient::getCustomUnits), List.of(customUnit))
             .create();
         customUnit.setIngredient(ingredient);
-        ingredientRepository.saveAndFlush(ingredient);
-
-        final var otherIngredient = Instancio.of(Ingredient.class)
-            .ignore(field(Ingredient::getId))
-            .ignore(field(Ingredient::getCustomUnits))
-            .ignore(field(Ingredient::getIngredientVariants))
-            .create();
-        ingredientRepository.saveAndFlush(otherIngredient);
+        ingredientRepository.save(ingredient);
 
         // when
-        final var result = customUnitRepository.findByIdAndIngredientId(
-            Objects.requireNonNull(customUnit.getId()),
-            Objects.requireNonNull(ingredient.getId())
-        );
-        final var mismatchedResult = customUnitRepository.findByIdAndIngredientId(
-            Objects.requireNonNull(customUnit.getId()),
-            Objects.requireNonNull(otherIngredient.getId())
-        );
+        final var result = Optional.ofNullable(ingredient.getId())
+            .map(customUnitRepository::findAllByIngredientId)
+            .orElse(List.of());
 
         // then
-        assertThat(result).contains(customUnit);
-        assertThat(mismatchedResult).isEmpty();
+        assertThat(result).singleElement()
+            .isEqualTo(customUnit);
     }
 
     @Test
@@ -321,14 +383,229 @@ class IngredientsDbTest {
             .create());
 
         // when
-        final var result = ingredientRepository.findByNameContainingIgnoreCase(
-            "tingredi",
-            PageRequest.of(0, 10, Sort.by("name"))
+        final var result = ingredientReadRepository.searchByName("tingredi", 0, 10);
+
+        // then
+        assertThat(result).singleElement()
+            .extracting(IngredientProjection::id)
+            .isEqualTo(ingredient.getId());
+    }
+
+    @Test
+    void retrieve_ingredients_with_search_ranked_by_similarity() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(4)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .ignore(field(Ingredient::getCustomUnits))
+            .create();
+        ingredients.get(0).setName("Magpie");
+        ingredients.get(1).setName("Apple Pie");
+        ingredients.get(2).setName("Pie");
+        ingredients.get(3).setName("Pear");
+        ingredientRepository.saveAllAndFlush(ingredients);
+
+        // when
+        final var result = ingredientReadRepository.searchByName("pie", 0, 10);
+
+        // then
+        assertThat(result).extracting(IngredientProjection::name)
+            .containsExactly("Pie", "Apple Pie", "Magpie");
+    }
+
+    @Test
+    void retrieve_ingredients_with_search_treats_wildcards_literally() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(2)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .ignore(field(Ingredient::getCustomUnits))
+            .create();
+        ingredients.get(0).setName("100% Juice");
+        ingredients.get(1).setName("100 Juice");
+        ingredientRepository.saveAllAndFlush(ingredients);
+
+        // when
+        final var result = ingredientReadRepository.searchByName("0%", 0, 10);
+
+        // then
+        assertThat(result).singleElement()
+            .extracting(IngredientProjection::name)
+            .isEqualTo("100% Juice");
+    }
+
+    @Test
+    void retrieve_ingredient_projection_with_children() {
+        // given
+        final var ingredientVariant = Instancio.of(IngredientVariant.class)
+            .ignore(field(IngredientVariant::getId))
+            .ignore(field(IngredientVariant::getIngredient))
+            .create();
+        final var customUnit = Instancio.of(CustomUnit.class)
+            .ignore(field(CustomUnit::getId))
+            .ignore(field(CustomUnit::getIngredient))
+            .create();
+        final var ingredient = Instancio.of(Ingredient.class)
+            .ignore(field(Ingredient::getId))
+            .set(field(Ingredient::getIngredientVariants), List.of(ingredientVariant))
+            .set(field(Ingredient::getCustomUnits), List.of(customUnit))
+            .create();
+        ingredientVariant.setIngredient(ingredient);
+        customUnit.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+        final var ingredientIds = List.of(Objects.requireNonNull(ingredient.getId()));
+
+        // when
+        final var result = ingredientReadRepository.findById(ingredientIds.getFirst());
+        final var ingredientVariants = ingredientReadRepository.findIngredientVariantsByIngredientIds(ingredientIds);
+        final var customUnits = ingredientReadRepository.findCustomUnitsByIngredientIds(ingredientIds);
+
+        // then
+        assertThat(result).hasValue(new IngredientProjection(
+            ingredient.getId(),
+            ingredient.getVersion(),
+            ingredient.getName(),
+            ingredient.getWeightToVolumeConversionFactor(),
+            ingredient.getConversionWeightUnit(),
+            ingredient.getConversionVolumeUnit()
+        ));
+        assertThat(ingredientVariants).singleElement()
+            .satisfies(projection -> {
+                assertThat(projection.id()).isEqualTo(ingredientVariant.getId());
+                assertThat(projection.ingredientId()).isEqualTo(ingredient.getId());
+                assertThat(projection.description()).isEqualTo(ingredientVariant.getDescription());
+                assertThat(projection.unit()).isEqualTo(ingredientVariant.getUnit());
+                assertThat(projection.calories()).isEqualTo(ingredientVariant.getCalories());
+            });
+        assertThat(customUnits).singleElement()
+            .satisfies(projection -> {
+                assertThat(projection.id()).isEqualTo(customUnit.getId());
+                assertThat(projection.ingredientId()).isEqualTo(ingredient.getId());
+                assertThat(projection.name()).isEqualTo(customUnit.getName());
+                assertThat(projection.conversionUnit()).isEqualTo(customUnit.getConversionUnit());
+            });
+    }
+
+    @Test
+    void ingredient_count_gets_estimated_before_first_analyze() {
+        // given
+        ingredientRepository.saveAndFlush(Instancio.of(Ingredient.class)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getCustomUnits))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .create());
+
+        // when
+        final var result = ingredientRepository.estimateCount();
+
+        // then
+        assertThat(result).isNotNegative();
+    }
+
+    @Test
+    void ingredients_get_upserted_by_name() {
+        // given
+        final var existing = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("existing")
+            .weightToVolumeConversionFactor(1.0)
+            .conversionWeightUnit(WeightUnit.GRAM)
+            .conversionVolumeUnit(VolumeUnit.MILLILITER)
+            .build());
+        final var updated = Ingredient.builder()
+            .id(UUID.randomUUID())
+            .name("existing")
+            .weightToVolumeConversionFactor(2.0)
+            .conversionWeightUnit(WeightUnit.KILOGRAM)
+            .build();
+        final var inserted = Ingredient.builder()
+            .id(UUID.randomUUID())
+            .name("new")
+            .weightToVolumeConversionFactor(0.5)
+            .conversionVolumeUnit(VolumeUnit.LITER)
+            .build();
+
+        // when
+        final var result = ingredientUpsertRepository.upsertByName(List.of(updated, inserted));
+
+        // then
+        assertThat(result).containsExactlyInAnyOrder(
+            new IngredientUpsert(
+                new IngredientProjection(
+                    existing.getId(),
+                    existing.getVersion() + 1,
+                    "existing",
+                    2.0,
+                    WeightUnit.KILOGRAM,
+                    null
+                ),
+                false
+            ),
+            new IngredientUpsert(
+                new IngredientProjection(inserted.getId(), 0, "new", 0.5, null, VolumeUnit.LITER),
+                true
+            )
         );
+    }
+
+    @Test
+    void unchanged_ingredient_keeps_its_version_when_upserted() {
+        // given
+        final var existing = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("existing")
+            .weightToVolumeConversionFactor(1.0)
+            .build());
+        final var unchanged = Ingredient.builder()
+            .id(UUID.randomUUID())
+            .name("existing")
+            .weightToVolumeConversionFactor(1.0)
+            .build();
+
+        // when
+        final var result = ingredientUpsertRepository.upsertByName(List.of(unchanged));
 
         // then
-        assertThat(result.getContent()).singleElement()
-            .isEqualTo(ingredient);
+        assertThat(result).singleElement()
+            .satisfies(upsert -> {
+                assertThat(upsert.inserted()).isFalse();
+                assertThat(upsert.ingredient().id()).isEqualTo(existing.getId());
+                assertThat(upsert.ingredient().version()).isEqualTo(existing.getVersion());
+            });
     }
 
+    @Test
+    void staged_ingredient_with_more_than_one_default_variant_is_a_violation() {
+        // given
+        final var single = Ingredient.builder()
+            .id(UUID.randomUUID())
+            .name("single")
+            .build();
+        final var multiple = Ingredient.builder()
+            .id(UUID.randomUUID())
+            .name("multiple")
+            .build();
+        ingredientImportRepository.createStagingTables();
+        ingredientImportRepository.copyIngredients(Stream.of(single, multiple));
+        ingredientImportRepository.copyIngredientVariants(Stream.of(
+            defaultVariant(single, "a"),
+            defaultVariant(multiple, "a"),
+            defaultVariant(multiple, "b")
+        ));
+
+        // when
+        final var violations = ingredientImportRepository.findViolations(20);
+
+        // then
+        assertThat(violations).containsExactly("More than one default ingredient variant for ingredient: multiple");
+    }
+
+    private static IngredientVariant defaultVariant(final Ingredient ingredient, final String description) {
+        return IngredientVariant.builder()
+            .id(UUID.randomUUID())
+            .ingredient(ingredient)
+            .description(description)
+            .defaultVariant(true)
+            .build();
+    }
 }
@@ -3,10 +3,18 @@ package net.fuzzyhome.home.rest;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
 import lombok.SneakyThrows;
 import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.Ingredient;
@@ -14,11 +22,15 @@ import net.fuzzyhome.home.database.entities.IngredientVariant;
 import net.fuzzyhome.home.database.repositories.CustomUnitRepository;
 import net.fuzzyhome.home.database.repositories.IngredientRepository;
 import net.fuzzyhome.home.database.repositories.IngredientVariantRepository;
+import org.hibernate.SessionFactory;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openapitools.model.CustomUnitDto;
 import org.openapitools.model.CustomUnitWriteRequest;
+import org.openapitools.model.IngredientBatchResultDto;
+import org.openapitools.model.IngredientBatchStatusDto;
+import org.openapitools.model.IngredientBatchWriteRequest;
 import org.openapitools.model.IngredientDto;
 import org.openapitools.model.IngredientVariantDto;
 import org.openapitools.model.IngredientVariantWriteRequest;
@@ -26,25 +38,37 @@ import org.openapitools.model.IngredientWriteRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.instancio.Select.field;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @AutoConfigureEmbeddedDatabase
+@Import(StatementCounter.class)
 class IngredientsApiITest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Autowired
@@ -56,6 +80,15 @@ class IngredientsApiITest {
     @Autowired
     private CustomUnitRepository customUnitRepository;
 
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
     @BeforeEach
     void setUp() {
         customUnitRepository.deleteAll();
@@ -95,6 +128,164 @@ class IngredientsApiITest {
             .isEqualTo(ingredient.getId());
     }
 
+    @SneakyThrows
+    @Test
+    void listIngredientsNotModified() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var entityTag = mockMvc.perform(get("/ingredients"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        // when
+        final var notModified = mockMvc.perform(get("/ingredients")
+                .header(HttpHeaders.IF_NONE_MATCH, Objects.requireNonNull(entityTag)))
+            .andExpect(status().isNotModified())
+            .andReturn();
+        mockMvc.perform(post("/ingredients/{ingredientId}/custom-units", ingredient.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(CustomUnitWriteRequest.builder()
+                    .name("custom unit")
+                    .build())))
+            .andExpect(status().isCreated());
+        final var modified = mockMvc.perform(get("/ingredients")
+                .header(HttpHeaders.IF_NONE_MATCH, entityTag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(notModified.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo(entityTag);
+        assertThat(notModified.getResponse().getContentLength()).isZero();
+        assertThat(modified.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(entityTag);
+    }
+
+    @SneakyThrows
+    @Test
+    void listIngredients_uses_constant_number_of_statements() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(6)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(IngredientVariant::getId))
+            .ignore(field(CustomUnit::getId))
+            .set(field(IngredientVariant::getDefaultVariant), false)
+            .create();
+        ingredients.forEach(ingredient -> {
+            Optional.ofNullable(ingredient.getIngredientVariants())
+                .ifPresent(variants -> variants.forEach(variant -> variant.setIngredient(ingredient)));
+            Optional.ofNullable(ingredient.getCustomUnits())
+                .ifPresent(customUnits -> customUnits.forEach(customUnit -> customUnit.setIngredient(ingredient)));
+        });
+        ingredientRepository.saveAllAndFlush(ingredients);
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statementCounter.reset();
+        mockMvc.perform(get("/ingredients")
+                .queryParam("size", "2"))
+            .andExpect(status().isOk());
+        final var smallPageStatementCount = statementCounter.getCount();
+
+        statistics.clear();
+        statementCounter.reset();
+        final var response = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "6"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        final var largePageStatementCount = statementCounter.getCount();
+
+        // then
+        // the page of ingredients, then their variants and their custom units
+        assertThat(smallPageStatementCount).isEqualTo(3);
+        assertThat(largePageStatementCount).isEqualTo(smallPageStatementCount);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        final var result = objectMapper.readValue(
+            response,
+            new TypeReference<List<IngredientDto>>() {
+            }
+        );
+        assertThat(result).hasSize(6)
+            .allSatisfy(ingredientDto -> {
+                final var ingredient = ingredients.stream()
+                    .filter(candidate -> Objects.equals(candidate.getId(), ingredientDto.getId()))
+                    .findFirst()
+                    .orElseThrow();
+                assertThat(ingredientDto.getIngredientVariants())
+                    .hasSameSizeAs(Optional.ofNullable(ingredient.getIngredientVariants()).orElse(List.of()));
+                assertThat(ingredientDto.getCustomUnits())
+                    .hasSameSizeAs(Optional.ofNullable(ingredient.getCustomUnits()).orElse(List.of()));
+            });
+    }
+
+    @SneakyThrows
+    @Test
+    void exportIngredients() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(3)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(IngredientVariant::getId))
+            .ignore(field(CustomUnit::getId))
+            .set(field(IngredientVariant::getDefaultVariant), false)
+            .create();
+        ingredients.forEach(ingredient -> {
+            Optional.ofNullable(ingredient.getIngredientVariants())
+                .ifPresent(variants -> variants.forEach(variant -> variant.setIngredient(ingredient)));
+            Optional.ofNullable(ingredient.getCustomUnits())
+                .ifPresent(customUnits -> customUnits.forEach(customUnit -> customUnit.setIngredient(ingredient)));
+        });
+        ingredientRepository.saveAllAndFlush(ingredients);
+        final var listResult = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "3"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // when
+        final var asyncResult = mockMvc.perform(get("/ingredients/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        final var result = mockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(asyncResult.getRequest().getAsyncContext().getTimeout())
+            .isEqualTo(IngredientsApiImpl.EXPORT_TIMEOUT.toMillis());
+        final var response = objectMapper.readValue(
+            result.getResponse().getContentAsString(),
+            new TypeReference<List<IngredientDto>>() {
+            }
+        );
+        final var listResponse = objectMapper.readValue(
+            listResult.getResponse().getContentAsString(),
+            new TypeReference<List<IngredientDto>>() {
+            }
+        );
+        assertThat(response).containsExactlyElementsOf(listResponse);
+    }
+
+    @SneakyThrows
+    @Test
+    void exportIngredients_empty() {
+        // when
+        final var asyncResult = mockMvc.perform(get("/ingredients/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        final var result = mockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getContentAsString()).isEqualTo("[]");
+    }
+
     @SneakyThrows
     @Test
     void listIngredients_second_page_with_search() {
@@ -131,6 +322,124 @@ class IngredientsApiITest {
             .isEqualTo(ingredients.get(2).getId());
     }
 
+    @SneakyThrows
+    @Test
+    void listIngredients_with_cursor() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(3)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getCustomUnits))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .create();
+
+        ingredients.get(0).setName("a");
+        ingredients.get(1).setName("b");
+        ingredients.get(2).setName("c");
+
+        ingredientRepository.saveAllAndFlush(ingredients);
+
+        // when
+        final var firstResult = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "2"))
+            .andExpect(status().isOk())
+            .andReturn();
+        final var nextCursor = firstResult.getResponse().getHeader(IngredientsApiImpl.NEXT_CURSOR_HEADER);
+        final var secondResult = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "2")
+                .queryParam("after", nextCursor))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(nextCursor).isNotNull();
+        final var response = objectMapper.readValue(
+            secondResult.getResponse().getContentAsString(),
+            new TypeReference<List<IngredientDto>>() {
+            }
+        );
+        assertThat(response).singleElement()
+            .extracting(IngredientDto::getId)
+            .isEqualTo(ingredients.get(2).getId());
+        assertThat(secondResult.getResponse().getHeader(IngredientsApiImpl.NEXT_CURSOR_HEADER)).isNull();
+    }
+
+    @SneakyThrows
+    @Test
+    void listIngredients_with_cursor_ending_on_full_page() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(4)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getCustomUnits))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .create();
+
+        ingredients.get(0).setName("a");
+        ingredients.get(1).setName("b");
+        ingredients.get(2).setName("c");
+        ingredients.get(3).setName("d");
+
+        ingredientRepository.saveAllAndFlush(ingredients);
+
+        // when
+        final var firstResult = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "2"))
+            .andExpect(status().isOk())
+            .andReturn();
+        final var secondResult = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "2")
+                .queryParam("after", firstResult.getResponse().getHeader(IngredientsApiImpl.NEXT_CURSOR_HEADER)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readValue(
+            secondResult.getResponse().getContentAsString(),
+            new TypeReference<List<IngredientDto>>() {
+            }
+        );
+        assertThat(response).extracting(IngredientDto::getId)
+            .containsExactly(ingredients.get(2).getId(), ingredients.get(3).getId());
+        assertThat(secondResult.getResponse().getHeader(IngredientsApiImpl.NEXT_CURSOR_HEADER)).isNull();
+    }
+
+    @SneakyThrows
+    @Test
+    void listIngredients_with_total_count() {
+        // given
+        ingredientRepository.saveAllAndFlush(Instancio.ofList(Ingredient.class)
+            .size(3)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getCustomUnits))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .create());
+
+        // when
+        final var result = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "1")
+                .queryParam("includeTotalCount", "true"))
+            .andExpect(status().isOk())
+            .andReturn();
+        final var resultWithoutCount = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getHeader(IngredientsApiImpl.TOTAL_COUNT_HEADER)).isNotNull();
+        assertThat(resultWithoutCount.getResponse().getHeader(IngredientsApiImpl.TOTAL_COUNT_HEADER)).isNull();
+    }
+
+    @SneakyThrows
+    @Test
+    void listIngredients_with_invalid_cursor() {
+        // when / then
+        mockMvc.perform(get("/ingredients")
+                .queryParam("after", "invalid"))
+            .andExpect(status().isBadRequest());
+    }
+
     @SneakyThrows
     @Test
     void createIngredientWithoutChildren() {
@@ -157,6 +466,334 @@ class IngredientsApiITest {
         assertThat(customUnitRepository.findAll()).isEmpty();
     }
 
+    @SneakyThrows
+    @Test
+    void createIngredientWithIdempotencyKeyReplaysResponse() {
+        // given
+        final var idempotencyKey = UUID.randomUUID().toString();
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        final var request = post("/ingredients")
+            .header("Idempotency-Key", idempotencyKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(ingredientWriteRequest));
+        final var firstResult = mockMvc.perform(request)
+            .andExpect(status().isCreated())
+            .andReturn();
+
+        // when
+        final var result = mockMvc.perform(request)
+            .andExpect(status().isCreated())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getContentAsString())
+            .isEqualTo(firstResult.getResponse().getContentAsString());
+        assertThat(ingredientRepository.findAll()).singleElement()
+            .extracting(Ingredient::getName)
+            .isEqualTo(ingredientWriteRequest.getName());
+    }
+
+    @SneakyThrows
+    @Test
+    void createIngredientFailsForIdempotencyKeyReusedForDifferentRequest() {
+        // given
+        final var idempotencyKey = UUID.randomUUID().toString();
+        mockMvc.perform(post("/ingredients")
+                .header("Idempotency-Key", idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(IngredientWriteRequest.builder()
+                    .name("first")
+                    .build())))
+            .andExpect(status().isCreated());
+
+        // when / then
+        mockMvc.perform(post("/ingredients")
+                .header("Idempotency-Key", idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(IngredientWriteRequest.builder()
+                    .name("second")
+                    .build())))
+            .andExpect(status().isConflict());
+        assertThat(ingredientRepository.findAll()).singleElement()
+            .extracting(Ingredient::getName)
+            .isEqualTo("first");
+    }
+
+    @SneakyThrows
+    @Test
+    void createIngredientsInBatches() {
+        // given
+        ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("existing")
+            .build());
+        final var ingredientBatchWriteRequests = Instancio.ofList(IngredientBatchWriteRequest.class)
+            .size(120)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .generate(field(IngredientBatchWriteRequest::getIngredientVariants), gen -> gen.collection().size(2))
+            .generate(field(IngredientBatchWriteRequest::getCustomUnits), gen -> gen.collection().size(1))
+            .create();
+        ingredientBatchWriteRequests.getLast().getIngredient().setName("existing");
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statistics.clear();
+        final var result = mockMvc.perform(post("/ingredients:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientBatchWriteRequests)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readValue(
+            result.getResponse().getContentAsString(),
+            new TypeReference<List<IngredientBatchResultDto>>() {
+            }
+        );
+        assertThat(response).hasSize(120);
+        assertThat(response.subList(0, 119)).allSatisfy(resultItem -> {
+            assertThat(resultItem.getStatus()).isEqualTo(IngredientBatchStatusDto.CREATED);
+            assertThat(resultItem.getIngredient().getIngredientVariants()).hasSize(2);
+            assertThat(resultItem.getIngredient().getCustomUnits()).hasSize(1);
+        });
+        assertThat(response.getLast().getStatus()).isEqualTo(IngredientBatchStatusDto.FAILED);
+        assertThat(response.getLast().getError().getMessage()).isEqualTo("Ingredient name already taken: existing");
+        // the name check plus three batches of at most 50 rows for each of the three tables
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1 + 3 * 3);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(119 * 4);
+        assertThat(ingredientRepository.count()).isEqualTo(120);
+        assertThat(ingredientVariantRepository.count()).isEqualTo(119 * 2);
+        assertThat(customUnitRepository.count()).isEqualTo(119);
+    }
+
+    @SneakyThrows
+    @Test
+    void createIngredientsFailsForEmptyBatch() {
+        // when / then
+        mockMvc.perform(post("/ingredients:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @SneakyThrows
+    @Test
+    void importIngredients() {
+        // given
+        final var ingredientBatchWriteRequests = Instancio.ofList(IngredientBatchWriteRequest.class)
+            .size(200)
+            .withUnique(field(IngredientWriteRequest::getName))
+            .withUnique(field(IngredientVariantWriteRequest::getDescription))
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .generate(field(IngredientBatchWriteRequest::getIngredientVariants), gen -> gen.collection().size(2))
+            .generate(field(IngredientBatchWriteRequest::getCustomUnits), gen -> gen.collection().size(1))
+            .create();
+        ingredientBatchWriteRequests.getFirst().getIngredient().setName("tab\tand\\backslash");
+        final var body = new StringBuilder();
+        for (final var ingredientBatchWriteRequest : ingredientBatchWriteRequests) {
+            body.append(objectMapper.writeValueAsString(ingredientBatchWriteRequest)).append('\n');
+        }
+
+        // when
+        final var result = mockMvc.perform(post("/ingredients/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body.toString()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(response.get("ingredients").asLong()).isEqualTo(200);
+        assertThat(response.get("ingredientVariants").asLong()).isEqualTo(400);
+        assertThat(response.get("customUnits").asLong()).isEqualTo(200);
+        assertThat(ingredientRepository.count()).isEqualTo(200);
+        assertThat(ingredientVariantRepository.count()).isEqualTo(400);
+        assertThat(customUnitRepository.count()).isEqualTo(200);
+        assertThat(ingredientRepository.findAll())
+            .extracting(Ingredient::getName)
+            .contains("tab\tand\\backslash");
+    }
+
+    @SneakyThrows
+    @Test
+    void importIngredientsFailsForTakenNameWithoutImportingAny() {
+        // given
+        ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("existing")
+            .build());
+        final var ingredientBatchWriteRequests = Instancio.ofList(IngredientBatchWriteRequest.class)
+            .size(3)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        ingredientBatchWriteRequests.getLast().getIngredient().setName("existing");
+        final var body = new StringBuilder();
+        for (final var ingredientBatchWriteRequest : ingredientBatchWriteRequests) {
+            body.append(objectMapper.writeValueAsString(ingredientBatchWriteRequest)).append('\n');
+        }
+
+        // when
+        final var result = mockMvc.perform(post("/ingredients/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body.toString()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getContentAsString()).contains("Ingredient name already taken: existing");
+        assertThat(ingredientRepository.count()).isEqualTo(1);
+        assertThat(ingredientVariantRepository.count()).isZero();
+        assertThat(customUnitRepository.count()).isZero();
+    }
+
+    @SneakyThrows
+    @Test
+    void importIngredientsReportsInvalidItemsWithOtherViolations() {
+        // given
+        ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("existing")
+            .build());
+        final var body = """
+            {"ingredient": {"name": "existing"}}
+            {"ingredient": {}}
+            {"ingredient": {"name": "other"}, "ingredientVariants": [{"unit": "GRAM"}]}
+            """;
+
+        // when
+        final var result = mockMvc.perform(post("/ingredients/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getContentAsString()).contains(
+            "Invalid ingredient 2: ingredient.name must not be null",
+            "Invalid ingredient 3: ingredientVariants[0].description must not be null",
+            "Ingredient name already taken: existing"
+        );
+        assertThat(ingredientRepository.count()).isEqualTo(1);
+        assertThat(ingredientVariantRepository.count()).isZero();
+    }
+
+    @SneakyThrows
+    @Test
+    void upsertIngredientByNameCreatesIngredient() {
+        // given
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "name")
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+
+        // when
+        final var result = mockMvc.perform(put("/ingredients/by-name/name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
+            .andExpect(status().isCreated())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readValue(result.getResponse().getContentAsString(), IngredientDto.class);
+        assertThat(response.getName()).isEqualTo("name");
+        assertThat(response.getWeightToVolumeConversionFactor())
+            .isEqualTo(ingredientWriteRequest.getWeightToVolumeConversionFactor());
+        assertThat(response.getConversionWeightUnit()).isEqualTo(ingredientWriteRequest.getConversionWeightUnit());
+        assertThat(response.getConversionVolumeUnit()).isEqualTo(ingredientWriteRequest.getConversionVolumeUnit());
+        assertThat(response.getId().version()).isEqualTo(7);
+        assertThat(ingredientRepository.findById(response.getId())).isPresent();
+    }
+
+    @SneakyThrows
+    @Test
+    void upsertIngredientByNameUpdatesIngredientOnlyIfChanged() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("name")
+            .ingredientVariants(List.of())
+            .customUnits(List.of())
+            .build());
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "name")
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+
+        // when
+        final var result = mockMvc.perform(put("/ingredients/by-name/name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+            .andReturn();
+        mockMvc.perform(put("/ingredients/by-name/name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        // then
+        final var response = objectMapper.readValue(result.getResponse().getContentAsString(), IngredientDto.class);
+        assertThat(response.getId()).isEqualTo(ingredient.getId());
+        assertThat(response.getWeightToVolumeConversionFactor())
+            .isEqualTo(ingredientWriteRequest.getWeightToVolumeConversionFactor());
+        assertThat(ingredientRepository.count()).isEqualTo(1);
+    }
+
+    @SneakyThrows
+    @Test
+    void upsertIngredientByNameFailsForNameNotMatchingPath() {
+        // given
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "other")
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+
+        // when / then
+        mockMvc.perform(put("/ingredients/by-name/name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @SneakyThrows
+    @Test
+    void upsertIngredientsByName() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("existing")
+            .build());
+        final var ingredientWriteRequests = Instancio.ofList(IngredientWriteRequest.class)
+            .size(3)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        ingredientWriteRequests.get(1).setName("existing");
+
+        // when
+        final var result = mockMvc.perform(put("/ingredients/by-name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientWriteRequests)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readValue(
+            result.getResponse().getContentAsString(),
+            new TypeReference<List<IngredientBatchResultDto>>() {
+            }
+        );
+        assertThat(response).extracting(IngredientBatchResultDto::getStatus).containsExactly(
+            IngredientBatchStatusDto.CREATED,
+            IngredientBatchStatusDto.UPDATED,
+            IngredientBatchStatusDto.CREATED
+        );
+        assertThat(response).extracting(resultItem -> resultItem.getIngredient().getName())
+            .containsExactlyElementsOf(ingredientWriteRequests.stream()
+                .map(IngredientWriteRequest::getName)
+                .toList());
+        assertThat(response.get(1).getIngredient().getId()).isEqualTo(ingredient.getId());
+        assertThat(ingredientRepository.count()).isEqualTo(3);
+    }
+
     @SneakyThrows
     @Test
     void getIngredient() {
@@ -224,6 +861,52 @@ class IngredientsApiITest {
         assertThat(response.get("customUnits").get(0).has("conversionUnit")).isFalse();
     }
 
+    @SneakyThrows
+    @Test
+    void getIngredientNotModified() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var entityTag = EntityTags.format(ingredient.getVersion());
+
+        // when
+        final var result = mockMvc.perform(get("/ingredients/{ingredientId}", ingredient.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + entityTag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo(entityTag);
+        assertThat(result.getResponse().getContentLength()).isZero();
+    }
+
+    @SneakyThrows
+    @Test
+    void getIngredientModifiedByNewVariant() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var entityTag = EntityTags.format(ingredient.getVersion());
+        mockMvc.perform(post("/ingredients/{ingredientId}/variants", ingredient.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Instancio.of(IngredientVariantWriteRequest.class).create())))
+            .andExpect(status().isCreated());
+
+        // when
+        final var result = mockMvc.perform(get("/ingredients/{ingredientId}", ingredient.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, entityTag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG))
+            .isEqualTo(EntityTags.format(ingredient.getVersion() + 1));
+        assertThat(objectMapper.readValue(result.getResponse().getContentAsString(), IngredientDto.class)
+            .getIngredientVariants()).hasSize(1);
+    }
+
     @SneakyThrows
     @Test
     void updateIngredientPreservesChildren() {
@@ -363,20 +1046,136 @@ class IngredientsApiITest {
         ingredientRepository.saveAndFlush(ingredient);
 
         final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
-            .set(field(IngredientWriteRequest::getDefaultVariantId), UUID.randomUUID())
+            .set(field(IngredientWriteRequest::getDefaultVariantId), UUID.randomUUID())
+            .create();
+
+        // when
+        mockMvc.perform(put("/ingredients/{ingredientId}", ingredient.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
+            .andExpect(status().isBadRequest());
+
+        // then
+        assertThat(ingredientVariantRepository.findById(Objects.requireNonNull(ingredientVariant.getId())))
+            .get()
+            .extracting(IngredientVariant::getDefaultVariant)
+            .isEqualTo(true);
+    }
+
+    @SneakyThrows
+    @Test
+    void updateIngredientSwitchesDefaultVariantConcurrently() {
+        // given
+        final var ingredientVariants = Instancio.ofList(IngredientVariant.class)
+            .size(5)
+            .ignore(field(IngredientVariant::getId))
+            .set(field(IngredientVariant::getDefaultVariant), false)
+            .create();
+        final var ingredient = Ingredient.builder()
+            .name("ingredient")
+            .ingredientVariants(ingredientVariants)
+            .build();
+        ingredientVariants.forEach(ingredientVariant -> ingredientVariant.setIngredient(ingredient));
+        ingredientRepository.saveAndFlush(ingredient);
+        final var ingredientVariantIds = ingredientVariants.stream()
+            .map(IngredientVariant::getId)
+            .toList();
+        final var updateCount = 200;
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statistics.clear();
+        final List<Future<Integer>> statuses;
+        try (final var executorService = Executors.newFixedThreadPool(8)) {
+            statuses = executorService.invokeAll(IntStream.range(0, updateCount)
+                .<Callable<Integer>>mapToObj(i -> () -> {
+                    final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+                        .set(
+                            field(IngredientWriteRequest::getDefaultVariantId),
+                            ingredientVariantIds.get(i % ingredientVariantIds.size())
+                        )
+                        .create();
+                    return mockMvc.perform(put("/ingredients/{ingredientId}", ingredient.getId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
+                        .andReturn()
+                        .getResponse()
+                        .getStatus();
+                })
+                .toList());
+        }
+
+        // then
+        for (final var status : statuses) {
+            assertThat(status.get()).isEqualTo(200);
+        }
+        // update and lock the ingredient, clear the old default and mark the new one
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3L * updateCount);
+        assertThat(ingredientVariantRepository.findAllByIngredientId(Objects.requireNonNull(ingredient.getId())))
+            .filteredOn(IngredientVariant::getDefaultVariant)
+            .hasSize(1);
+    }
+
+    @SneakyThrows
+    @Test
+    void updateIngredientWithMatchingEntityTag() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var entityTag = mockMvc.perform(get("/ingredients/{ingredientId}", ingredient.getId()))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+
+        // when
+        final var result = mockMvc.perform(put("/ingredients/{ingredientId}", ingredient.getId())
+                .header(HttpHeaders.IF_MATCH, Objects.requireNonNull(entityTag))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(entityTag).isEqualTo(EntityTags.format(ingredient.getVersion()));
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG))
+            .isEqualTo(EntityTags.format(ingredient.getVersion() + 1));
+        assertThat(ingredientRepository.findById(Objects.requireNonNull(ingredient.getId()))).get()
+            .extracting(Ingredient::getName)
+            .isEqualTo(ingredientWriteRequest.getName());
+    }
+
+    @SneakyThrows
+    @Test
+    void updateIngredientFailsForStaleEntityTag() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var staleEntityTag = EntityTags.format(ingredient.getVersion());
+        mockMvc.perform(post("/ingredients/{ingredientId}/variants", ingredient.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Instancio.of(IngredientVariantWriteRequest.class).create())))
+            .andExpect(status().isCreated());
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
             .create();
 
         // when
         mockMvc.perform(put("/ingredients/{ingredientId}", ingredient.getId())
+                .header(HttpHeaders.IF_MATCH, staleEntityTag)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(ingredientWriteRequest)))
-            .andExpect(status().isBadRequest());
+            .andExpect(status().isPreconditionFailed());
 
         // then
-        assertThat(ingredientVariantRepository.findById(Objects.requireNonNull(ingredientVariant.getId())))
-            .get()
-            .extracting(IngredientVariant::getDefaultVariant)
-            .isEqualTo(true);
+        assertThat(ingredientRepository.findById(Objects.requireNonNull(ingredient.getId()))).get()
+            .extracting(Ingredient::getName)
+            .isEqualTo("ingredient");
     }
 
     @SneakyThrows
@@ -401,6 +1200,48 @@ class IngredientsApiITest {
 
         // then
         assertThat(ingredientRepository.findAll()).isEmpty();
+        assertThat(ingredientVariantRepository.findAll()).isEmpty();
+        assertThat(customUnitRepository.findAll()).isEmpty();
+    }
+
+    @SneakyThrows
+    @Test
+    void deleteIngredients() {
+        // given
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(3)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(IngredientVariant::getId))
+            .ignore(field(CustomUnit::getId))
+            .set(field(IngredientVariant::getDefaultVariant), false)
+            .create();
+        ingredients.forEach(ingredient -> {
+            Optional.ofNullable(ingredient.getIngredientVariants())
+                .ifPresent(variants -> variants.forEach(variant -> variant.setIngredient(ingredient)));
+            Optional.ofNullable(ingredient.getCustomUnits())
+                .ifPresent(customUnits -> customUnits.forEach(customUnit -> customUnit.setIngredient(ingredient)));
+        });
+        ingredientRepository.saveAllAndFlush(ingredients);
+        final var remainingIngredient = ingredients.getLast();
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statistics.clear();
+        mockMvc.perform(delete("/ingredients")
+                .queryParam("ids", String.valueOf(ingredients.get(0).getId()))
+                .queryParam("ids", String.valueOf(ingredients.get(1).getId()))
+                .queryParam("ids", String.valueOf(UUID.randomUUID())))
+            .andExpect(status().isNoContent());
+
+        // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(ingredientRepository.findAll()).singleElement()
+            .extracting(Ingredient::getId)
+            .isEqualTo(remainingIngredient.getId());
+        assertThat(ingredientVariantRepository.findAll())
+            .hasSameSizeAs(Optional.ofNullable(remainingIngredient.getIngredientVariants()).orElse(List.of()));
+        assertThat(customUnitRepository.findAll())
+            .hasSameSizeAs(Optional.ofNullable(remainingIngredient.getCustomUnits()).orElse(List.of()));
     }
 
     @SneakyThrows
@@ -431,6 +1272,38 @@ class IngredientsApiITest {
         assertThat(response).hasSize(ingredient.getIngredientVariants().size());
     }
 
+    @SneakyThrows
+    @Test
+    void listIngredientVariantsNotModified() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var entityTag = mockMvc.perform(get("/ingredients/{ingredientId}/variants", ingredient.getId()))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        // when
+        final var result = mockMvc.perform(get("/ingredients/{ingredientId}/variants", ingredient.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, Objects.requireNonNull(entityTag)))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+        // then
+        assertThat(entityTag).isEqualTo(EntityTags.format(ingredient.getVersion()));
+        assertThat(result.getResponse().getContentLength()).isZero();
+    }
+
+    @SneakyThrows
+    @Test
+    void listIngredientVariantsFailsForUnknownIngredient() {
+        // when / then
+        mockMvc.perform(get("/ingredients/{ingredientId}/variants", UUID.randomUUID()))
+            .andExpect(status().isNotFound());
+    }
+
     @SneakyThrows
     @Test
     void addIngredientVariant() {
@@ -463,6 +1336,44 @@ class IngredientsApiITest {
             .isEqualTo(ingredientVariantWriteRequest.getDescription());
     }
 
+    @SneakyThrows
+    @Test
+    void addIngredientVariantWithIdempotencyKeyAddsItOnce() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var request = post("/ingredients/{ingredientId}/variants", ingredient.getId())
+            .header("Idempotency-Key", UUID.randomUUID().toString())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(IngredientVariantWriteRequest.builder()
+                .description("variant")
+                .build()));
+        final var firstResult = mockMvc.perform(request)
+            .andExpect(status().isCreated())
+            .andReturn();
+
+        // when
+        final var result = mockMvc.perform(request)
+            .andExpect(status().isCreated())
+            .andReturn();
+
+        // then
+        final var firstResponse = objectMapper.readValue(
+            firstResult.getResponse().getContentAsString(),
+            IngredientVariantDto.class
+        );
+        final var response = objectMapper.readValue(
+            result.getResponse().getContentAsString(),
+            IngredientVariantDto.class
+        );
+        assertThat(response.getId()).isEqualTo(firstResponse.getId());
+        assertThat(ingredientVariantRepository.findAllByIngredientId(Objects.requireNonNull(ingredient.getId())))
+            .singleElement()
+            .extracting(IngredientVariant::getId)
+            .isEqualTo(firstResponse.getId());
+    }
+
     @Test
     void getIngredientVariant() throws Exception {
         // given
@@ -479,8 +1390,10 @@ class IngredientsApiITest {
             .create();
         ingredientVariant.setIngredient(ingredient);
         ingredientRepository.saveAndFlush(ingredient);
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
 
         // when
+        statistics.clear();
         final var result = mockMvc.perform(get(
                 "/ingredients/{ingredientId}/variants/{variantId}",
                 ingredient.getId(),
@@ -490,6 +1403,7 @@ class IngredientsApiITest {
             .andReturn();
 
         // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
         final var response = objectMapper.readValue(
             result.getResponse().getContentAsString(),
             IngredientVariantDto.class
@@ -558,6 +1472,311 @@ class IngredientsApiITest {
             .isEqualTo("original description");
     }
 
+    @SneakyThrows
+    @Test
+    void patchIngredient() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Instancio.of(Ingredient.class)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getIngredientVariants))
+            .ignore(field(Ingredient::getCustomUnits))
+            .create());
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statistics.clear();
+        final var result = mockMvc.perform(patch("/ingredients/{ingredientId}", ingredient.getId())
+                .contentType("application/merge-patch+json")
+                .header(HttpHeaders.IF_MATCH, EntityTags.format(ingredient.getVersion()))
+                .content("""
+                    {"name": "patched", "conversionVolumeUnit": null}
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, EntityTags.format(ingredient.getVersion() + 1)))
+            .andReturn();
+
+        // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        final var response = objectMapper.readValue(result.getResponse().getContentAsString(), IngredientDto.class);
+        assertThat(response.getName()).isEqualTo("patched");
+        assertThat(response.getConversionVolumeUnit()).isNull();
+        assertThat(response.getConversionWeightUnit()).isNotNull();
+        assertThat(response.getWeightToVolumeConversionFactor())
+            .isEqualTo(ingredient.getWeightToVolumeConversionFactor());
+    }
+
+    @SneakyThrows
+    @Test
+    void patchIngredientFailsForStaleEntityTag() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("name")
+            .build());
+
+        // when / then
+        mockMvc.perform(patch("/ingredients/{ingredientId}", ingredient.getId())
+                .contentType("application/merge-patch+json")
+                .header(HttpHeaders.IF_MATCH, EntityTags.format(ingredient.getVersion() + 1))
+                .content("""
+                    {"name": "patched"}
+                    """))
+            .andExpect(status().isPreconditionFailed());
+        assertThat(ingredientRepository.findById(Objects.requireNonNull(ingredient.getId())))
+            .get()
+            .extracting(Ingredient::getName)
+            .isEqualTo("name");
+    }
+
+    @SneakyThrows
+    @Test
+    void patchIngredientDefaultVariantWithMatchingEntityTag() {
+        // given
+        final var ingredientVariant = IngredientVariant.builder()
+            .description("variant")
+            .defaultVariant(false)
+            .build();
+        final var ingredient = Ingredient.builder()
+            .name("ingredient")
+            .ingredientVariants(List.of(ingredientVariant))
+            .build();
+        ingredientVariant.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+
+        // when
+        final var result = mockMvc.perform(patch("/ingredients/{ingredientId}", ingredient.getId())
+                .contentType("application/merge-patch+json")
+                .header(HttpHeaders.IF_MATCH, EntityTags.format(ingredient.getVersion()))
+                .content(String.format("""
+                    {"defaultVariantId": "%s"}
+                    """, ingredientVariant.getId())))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, EntityTags.format(ingredient.getVersion() + 1)))
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readValue(result.getResponse().getContentAsString(), IngredientDto.class);
+        assertThat(response.getName()).isEqualTo("ingredient");
+        assertThat(response.getIngredientVariants())
+            .extracting(IngredientVariantDto::getDefaultVariant)
+            .containsExactly(true);
+    }
+
+    @SneakyThrows
+    @Test
+    void patchIngredientDefaultVariantFailsForStaleEntityTag() {
+        // given
+        final var ingredientVariant = IngredientVariant.builder()
+            .description("variant")
+            .defaultVariant(false)
+            .build();
+        final var ingredient = Ingredient.builder()
+            .name("ingredient")
+            .ingredientVariants(List.of(ingredientVariant))
+            .build();
+        ingredientVariant.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+
+        // when / then
+        mockMvc.perform(patch("/ingredients/{ingredientId}", ingredient.getId())
+                .contentType("application/merge-patch+json")
+                .header(HttpHeaders.IF_MATCH, EntityTags.format(ingredient.getVersion() + 1))
+                .content(String.format("""
+                    {"defaultVariantId": "%s"}
+                    """, ingredientVariant.getId())))
+            .andExpect(status().isPreconditionFailed());
+        assertThat(ingredientVariantRepository.findById(Objects.requireNonNull(ingredientVariant.getId())))
+            .get()
+            .extracting(IngredientVariant::getDefaultVariant)
+            .isEqualTo(false);
+    }
+
+    @SneakyThrows
+    @Test
+    void patchIngredientFailsForDefaultVariantAfterConcurrentWrite() {
+        // given
+        final var ingredientVariant = IngredientVariant.builder()
+            .description("variant")
+            .defaultVariant(false)
+            .build();
+        final var ingredient = Ingredient.builder()
+            .name("ingredient")
+            .ingredientVariants(List.of(ingredientVariant))
+            .build();
+        ingredientVariant.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+
+        // when
+        final int status;
+        try (final var connection = dataSource.getConnection();
+            final var executorService = Executors.newSingleThreadExecutor()) {
+            // a concurrent write, which only commits once the patch has read the ingredient and waits for its lock
+            connection.setAutoCommit(false);
+            try (final var statement = connection.prepareStatement(
+                "UPDATE ingredient SET version = version + 1 WHERE id = ?"
+            )) {
+                statement.setObject(1, ingredient.getId());
+                statement.executeUpdate();
+            }
+            final var patch = executorService.submit(() -> mockMvc.perform(
+                    patch("/ingredients/{ingredientId}", ingredient.getId())
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, EntityTags.format(ingredient.getVersion()))
+                        .content(String.format("""
+                            {"defaultVariantId": "%s"}
+                            """, ingredientVariant.getId())))
+                .andReturn()
+                .getResponse()
+                .getStatus());
+            awaitLockWait();
+            connection.commit();
+            status = patch.get();
+        }
+
+        // then
+        assertThat(status).isEqualTo(412);
+        assertThat(ingredientVariantRepository.findById(Objects.requireNonNull(ingredientVariant.getId())))
+            .get()
+            .extracting(IngredientVariant::getDefaultVariant)
+            .isEqualTo(false);
+    }
+
+    @SneakyThrows
+    @Test
+    void patchIngredientVariant() {
+        // given
+        final var ingredientVariant = Instancio.of(IngredientVariant.class)
+            .ignore(field(IngredientVariant::getId))
+            .ignore(field(IngredientVariant::getIngredient))
+            .create();
+        final var ingredient = Instancio.of(Ingredient.class)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(Ingredient::getCustomUnits))
+            .set(field(Ingredient::getIngredientVariants), List.of(ingredientVariant))
+            .create();
+        ingredientVariant.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statistics.clear();
+        final var result = mockMvc.perform(patch(
+                "/ingredients/{ingredientId}/variants/{variantId}",
+                ingredient.getId(),
+                ingredientVariant.getId()
+            ).contentType("application/merge-patch+json")
+                .content("""
+                    {"fat": 3.5, "sugar": null}
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, EntityTags.format(ingredientVariant.getVersion() + 1)))
+            .andReturn();
+
+        // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        final var response = objectMapper.readValue(
+            result.getResponse().getContentAsString(),
+            IngredientVariantDto.class
+        );
+        assertThat(response.getFat()).isEqualTo(3.5);
+        assertThat(response.getSugar()).isNull();
+        assertThat(response.getDescription()).isEqualTo(ingredientVariant.getDescription());
+        assertThat(response.getCalories()).isEqualTo(ingredientVariant.getCalories());
+    }
+
+    @SneakyThrows
+    @Test
+    void replaceIngredientVariantsWritesOnlyTheDifference() {
+        // given
+        final var updatedVariant = IngredientVariant.builder()
+            .description("updated")
+            .defaultVariant(true)
+            .fat(1.0)
+            .build();
+        final var unchangedVariant = IngredientVariant.builder()
+            .description("unchanged")
+            .defaultVariant(false)
+            .fat(2.0)
+            .build();
+        final var removedVariant = IngredientVariant.builder()
+            .description("removed")
+            .defaultVariant(false)
+            .build();
+        final var ingredient = Ingredient.builder()
+            .name("ingredient")
+            .ingredientVariants(List.of(updatedVariant, unchangedVariant, removedVariant))
+            .build();
+        updatedVariant.setIngredient(ingredient);
+        unchangedVariant.setIngredient(ingredient);
+        removedVariant.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+
+        final var ingredientVariantWriteRequests = List.of(
+            IngredientVariantWriteRequest.builder()
+                .description("updated")
+                .fat(1.5)
+                .build(),
+            IngredientVariantWriteRequest.builder()
+                .description("unchanged")
+                .fat(2.0)
+                .build(),
+            IngredientVariantWriteRequest.builder()
+                .description("added")
+                .build()
+        );
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        statistics.clear();
+        final var result = mockMvc.perform(put("/ingredients/{ingredientId}/variants", ingredient.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, EntityTags.format(ingredient.getVersion()))
+                .content(objectMapper.writeValueAsString(ingredientVariantWriteRequests)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, EntityTags.format(ingredient.getVersion() + 1)))
+            .andReturn();
+
+        // then
+        // Version increment, variant query, one update, one delete and one insert.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+        final var response = List.of(objectMapper.readValue(
+            result.getResponse().getContentAsString(),
+            IngredientVariantDto[].class
+        ));
+        assertThat(response).extracting(IngredientVariantDto::getDescription)
+            .containsExactlyInAnyOrder("updated", "unchanged", "added");
+        assertThat(response).filteredOn(IngredientVariantDto::getDefaultVariant)
+            .extracting(IngredientVariantDto::getId, IngredientVariantDto::getFat)
+            .containsExactly(tuple(updatedVariant.getId(), 1.5));
+        assertThat(ingredientVariantRepository.findById(Objects.requireNonNull(unchangedVariant.getId())))
+            .get()
+            .extracting(IngredientVariant::getVersion)
+            .isEqualTo(unchangedVariant.getVersion());
+        assertThat(ingredientVariantRepository.existsById(Objects.requireNonNull(removedVariant.getId()))).isFalse();
+    }
+
+    @SneakyThrows
+    @Test
+    void replaceIngredientVariantsFailsForDuplicateDescriptions() {
+        // given
+        final var ingredient = ingredientRepository.saveAndFlush(Ingredient.builder()
+            .name("ingredient")
+            .build());
+        final var ingredientVariantWriteRequest = IngredientVariantWriteRequest.builder()
+            .description("duplicate")
+            .build();
+
+        // when / then
+        mockMvc.perform(put("/ingredients/{ingredientId}/variants", ingredient.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                    ingredientVariantWriteRequest,
+                    ingredientVariantWriteRequest
+                ))))
+            .andExpect(status().isBadRequest());
+        assertThat(ingredientVariantRepository.findAllByIngredientId(Objects.requireNonNull(ingredient.getId())))
+            .isEmpty();
+    }
+
     @SneakyThrows
     @Test
     void updateIngredientVariant() {
@@ -578,8 +1797,10 @@ class IngredientsApiITest {
         final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class)
             .set(field(IngredientVariantWriteRequest::getDescription), "renamed variant")
             .create();
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
 
         // when
+        statistics.clear();
         final var result = mockMvc.perform(put(
                 "/ingredients/{ingredientId}/variants/{variantId}",
                 ingredient.getId(),
@@ -590,6 +1811,9 @@ class IngredientsApiITest {
             .andReturn();
 
         // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG))
+            .isEqualTo(EntityTags.format(ingredientVariant.getVersion() + 1));
         final var response = objectMapper.readValue(
             result.getResponse().getContentAsString(),
             IngredientVariantDto.class
@@ -704,8 +1928,10 @@ class IngredientsApiITest {
             .create();
         customUnit.setIngredient(ingredient);
         ingredientRepository.saveAndFlush(ingredient);
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
 
         // when
+        statistics.clear();
         final var result = mockMvc.perform(get(
                 "/ingredients/{ingredientId}/custom-units/{unitId}",
                 ingredient.getId(),
@@ -715,6 +1941,7 @@ class IngredientsApiITest {
             .andReturn();
 
         // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
         final var response = objectMapper.readValue(
             result.getResponse().getContentAsString(),
             CustomUnitDto.class
@@ -803,8 +2030,10 @@ class IngredientsApiITest {
         final var customUnitWriteRequest = Instancio.of(CustomUnitWriteRequest.class)
             .set(field(CustomUnitWriteRequest::getName), "renamed custom unit")
             .create();
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
 
         // when
+        statistics.clear();
         final var result = mockMvc.perform(put(
                 "/ingredients/{ingredientId}/custom-units/{unitId}",
                 ingredient.getId(),
@@ -815,6 +2044,9 @@ class IngredientsApiITest {
             .andReturn();
 
         // then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG))
+            .isEqualTo(EntityTags.format(customUnit.getVersion() + 1));
         final var response = objectMapper.readValue(
             result.getResponse().getContentAsString(),
             CustomUnitDto.class
@@ -824,6 +2056,41 @@ class IngredientsApiITest {
         assertThat(response.getId()).isEqualTo(customUnit.getId());
     }
 
+    @SneakyThrows
+    @Test
+    void updateCustomUnitFailsForStaleEntityTag() {
+        // given
+        final var customUnit = CustomUnit.builder()
+            .name("custom unit")
+            .build();
+        final var ingredient = Ingredient.builder()
+            .name("ingredient")
+            .customUnits(List.of(customUnit))
+            .build();
+        customUnit.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+
+        final var customUnitWriteRequest = Instancio.of(CustomUnitWriteRequest.class).create();
+
+        // when
+        mockMvc.perform(put(
+                "/ingredients/{ingredientId}/custom-units/{unitId}",
+                ingredient.getId(),
+                customUnit.getId()
+            ).header(HttpHeaders.IF_MATCH, EntityTags.format(customUnit.getVersion() + 1))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customUnitWriteRequest)))
+            .andExpect(status().isPreconditionFailed());
+
+        // then
+        assertThat(customUnitRepository.findAll()).singleElement()
+            .extracting(CustomUnit::getName)
+            .isEqualTo("custom unit");
+        assertThat(ingredientRepository.findAll()).singleElement()
+            .extracting(Ingredient::getVersion)
+            .isEqualTo(ingredient.getVersion());
+    }
+
     @SneakyThrows
     @Test
     void deleteCustomUnit() {
@@ -855,4 +2122,18 @@ class IngredientsApiITest {
         ).isEmpty();
     }
 
+    /**
+     * Waits until some statement waits for a lock held by another transaction.
+     */
+    @SneakyThrows
+    private void awaitLockWait() {
+        final var deadline = Instant.now().plus(Duration.ofSeconds(10));
+        while (jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'",
+            Long.class
+        ) == 0) {
+            assertThat(Instant.now()).isBefore(deadline);
+            Thread.sleep(10);
+        }
+    }
 }
@@ -0,0 +1,167 @@
+package net.fuzzyhome.home.rest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.SneakyThrows;
+import net.fuzzyhome.home.database.entities.CustomUnit;
+import net.fuzzyhome.home.database.entities.Ingredient;
+import net.fuzzyhome.home.database.entities.IngredientVariant;
+import net.fuzzyhome.home.database.repositories.CustomUnitRepository;
+import net.fuzzyhome.home.database.repositories.IngredientRepository;
+import net.fuzzyhome.home.database.repositories.IngredientVariantRepository;
+import net.fuzzyhome.home.services.IngredientService;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openapitools.model.IngredientDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.instancio.Select.field;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.ingredients.json-aggregation.enabled=true")
+@AutoConfigureMockMvc
+@AutoConfigureEmbeddedDatabase
+class IngredientsJsonAggregationApiITest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private IngredientService ingredientService;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private IngredientVariantRepository ingredientVariantRepository;
+
+    @Autowired
+    private CustomUnitRepository customUnitRepository;
+
+    @BeforeEach
+    void setUp() {
+        customUnitRepository.deleteAll();
+        ingredientVariantRepository.deleteAll();
+        ingredientRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    @Test
+    void getIngredient_matches_mapped_response() {
+        // given
+        final var ingredient = createIngredients(1).getFirst();
+
+        // when
+        final var result = mockMvc.perform(get("/ingredients/{ingredientId}", ingredient.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readValue(result.getResponse().getContentAsString(), IngredientDto.class);
+        assertThat(response).isEqualTo(ingredientService.getIngredientById(ingredient.getId()).value());
+    }
+
+    @SneakyThrows
+    @Test
+    void getIngredient_omitsNullValues() {
+        // given
+        final var ingredientVariant = IngredientVariant.builder()
+            .description("variant")
+            .defaultVariant(false)
+            .build();
+        final var ingredient = Ingredient.builder()
+            .name("ingredient")
+            .ingredientVariants(List.of(ingredientVariant))
+            .build();
+        ingredientVariant.setIngredient(ingredient);
+        ingredientRepository.saveAndFlush(ingredient);
+
+        // when
+        final var result = mockMvc.perform(get("/ingredients/{ingredientId}", ingredient.getId()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(response.has("weightToVolumeConversionFactor")).isFalse();
+        assertThat(response.has("conversionWeightUnit")).isFalse();
+        assertThat(response.get("ingredientVariants").get(0).has("unit")).isFalse();
+        assertThat(response.get("customUnits").isEmpty()).isTrue();
+    }
+
+    @SneakyThrows
+    @Test
+    void getIngredient_not_found() {
+        // when / then
+        mockMvc.perform(get("/ingredients/{ingredientId}", UUID.randomUUID()))
+            .andExpect(status().isNotFound());
+    }
+
+    @SneakyThrows
+    @Test
+    void listIngredients_matches_mapped_response() {
+        // given
+        createIngredients(3);
+        final var expected = ingredientService.getAllIngredients(0, 2, null, null, false);
+
+        // when
+        final var result = mockMvc.perform(get("/ingredients")
+                .queryParam("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(IngredientsApiImpl.NEXT_CURSOR_HEADER, expected.nextCursor()))
+            .andReturn();
+
+        // then
+        final var response = objectMapper.readValue(
+            result.getResponse().getContentAsString(),
+            new TypeReference<List<IngredientDto>>() {
+            }
+        );
+        assertThat(response).containsExactlyElementsOf(expected.ingredients());
+    }
+
+    @SneakyThrows
+    @Test
+    void listIngredients_empty() {
+        // when
+        final var result = mockMvc.perform(get("/ingredients"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // then
+        assertThat(result.getResponse().getContentAsString()).isEqualTo("[]");
+    }
+
+    private List<Ingredient> createIngredients(final int count) {
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(count)
+            .ignore(field(Ingredient::getId))
+            .ignore(field(IngredientVariant::getId))
+            .ignore(field(CustomUnit::getId))
+            .set(field(IngredientVariant::getDefaultVariant), false)
+            .create();
+        ingredients.forEach(ingredient -> {
+            Optional.ofNullable(ingredient.getIngredientVariants())
+                .ifPresent(variants -> variants.forEach(variant -> variant.setIngredient(ingredient)));
+            Optional.ofNullable(ingredient.getCustomUnits())
+                .ifPresent(customUnits -> customUnits.forEach(customUnit -> customUnit.setIngredient(ingredient)));
+        });
+        return ingredientRepository.saveAllAndFlush(ingredients);
+    }
+}
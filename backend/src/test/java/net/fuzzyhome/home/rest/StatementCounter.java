@@ -0,0 +1,78 @@
+package net.fuzzyhome.home.rest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+
+/**
+ * Counts the statements created on connections of the data source. Unlike Hibernate's statistics, this also covers
+ * the statements of plain JDBC access such as {@code JdbcClient}.
+ */
+@TestConfiguration
+class StatementCounter implements BeanPostProcessor {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    private final AtomicLong count = new AtomicLong();
+
+    public void reset() {
+        count.set(0);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    @NonNull
+    @Override
+    public Object postProcessAfterInitialization(@NonNull final Object bean, @NonNull final String beanName) {
+        return bean instanceof final DataSource dataSource ? countStatements(dataSource) : bean;
+    }
+
+    @NonNull
+    private DataSource countStatements(@NonNull final DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(
+            DataSource.class.getClassLoader(),
+            new Class<?>[] {DataSource.class},
+            (proxy, method, args) -> {
+                final var result = invoke(dataSource, method, args);
+                return result instanceof final Connection connection ? countStatements(connection) : result;
+            }
+        );
+    }
+
+    @NonNull
+    private Connection countStatements(@NonNull final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if (STATEMENT_FACTORIES.contains(method.getName())) {
+                    count.incrementAndGet();
+                }
+                return invoke(connection, method, args);
+            }
+        );
+    }
+
+    @Nullable
+    private static Object invoke(
+        @NonNull final Object target,
+        @NonNull final Method method,
+        final @Nullable Object @Nullable [] args
+    ) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package net.fuzzyhome.home.services;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+import net.fuzzyhome.home.config.IdempotencyProperties;
+import net.fuzzyhome.home.database.projections.IdempotencyKey;
+import net.fuzzyhome.home.database.repositories.IdempotencyKeyRepository;
+import net.fuzzyhome.home.services.errors.BadRequestException;
+import net.fuzzyhome.home.services.errors.ConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.openapitools.model.IngredientDto;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private final IdempotencyProperties idempotencyProperties = new IdempotencyProperties();
+
+    private IdempotencyServiceImpl idempotencyServiceImpl;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Supplier<IngredientDto> action;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyServiceImpl = new IdempotencyServiceImpl(
+            idempotencyKeyRepository,
+            idempotencyProperties,
+            jsonMapper,
+            transactionManager
+        );
+    }
+
+    @Test
+    void runs_action_without_key() {
+        // given
+        final var ingredientDto = IngredientDto.builder().name("ingredient").build();
+        when(action.get()).thenReturn(ingredientDto);
+
+        // when
+        final var result = idempotencyServiceImpl.execute("scope", null, "request", IngredientDto.class, action);
+
+        // then
+        assertThat(result).isEqualTo(ingredientDto);
+        verifyNoInteractions(idempotencyKeyRepository, transactionManager);
+    }
+
+    @Test
+    void replays_stored_response_without_running_action() {
+        // given
+        final var ingredientDto = IngredientDto.builder().name("ingredient").build();
+        when(idempotencyKeyRepository.claim(eq("scope"), eq("key"), any(), any())).thenReturn(false);
+        when(idempotencyKeyRepository.find("scope", "key")).thenReturn(Optional.of(new IdempotencyKey(
+            hash("request"),
+            jsonMapper.writeValueAsBytes(ingredientDto),
+            OffsetDateTime.now()
+        )));
+
+        // when
+        final var result = idempotencyServiceImpl.execute("scope", "key", "request", IngredientDto.class, action);
+        final var cachedResult = idempotencyServiceImpl.execute("scope", "key", "request", IngredientDto.class, action);
+
+        // then
+        assertThat(result).isEqualTo(ingredientDto);
+        assertThat(cachedResult).isEqualTo(ingredientDto);
+        verify(idempotencyKeyRepository).find("scope", "key");
+        verifyNoInteractions(action);
+    }
+
+    @Test
+    void fails_for_key_reused_for_different_request() {
+        // given
+        when(idempotencyKeyRepository.claim(eq("scope"), eq("key"), any(), any())).thenReturn(false);
+        when(idempotencyKeyRepository.find("scope", "key")).thenReturn(Optional.of(new IdempotencyKey(
+            hash("other request"),
+            jsonMapper.writeValueAsBytes(IngredientDto.builder().name("ingredient").build()),
+            OffsetDateTime.now()
+        )));
+
+        // when
+        final var exception = catchException(() -> idempotencyServiceImpl.execute(
+            "scope",
+            "key",
+            "request",
+            IngredientDto.class,
+            action
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(ConflictException.class)
+            .hasMessageContaining("Idempotency key was already used for a different request: key");
+        verifyNoInteractions(action);
+    }
+
+    @Test
+    void fails_for_key_of_unfinished_request() {
+        // given
+        when(idempotencyKeyRepository.claim(eq("scope"), eq("key"), any(), any())).thenReturn(false);
+        when(idempotencyKeyRepository.find("scope", "key")).thenReturn(Optional.empty());
+
+        // when
+        final var exception = catchException(() -> idempotencyServiceImpl.execute(
+            "scope",
+            "key",
+            "request",
+            IngredientDto.class,
+            action
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(ConflictException.class)
+            .hasMessageContaining("Idempotency key is in use by another request: key");
+        verifyNoInteractions(action);
+    }
+
+    @Test
+    void fails_for_too_long_key() {
+        // when
+        final var exception = catchException(() -> idempotencyServiceImpl.execute(
+            "scope",
+            "k".repeat(256),
+            "request",
+            IngredientDto.class,
+            action
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("Idempotency key must have between 1 and 255 characters");
+        verifyNoInteractions(idempotencyKeyRepository, action);
+    }
+
+    private String hash(final Object request) {
+        return DigestUtils.md5DigestAsHex(jsonMapper.writeValueAsBytes(request));
+    }
+}
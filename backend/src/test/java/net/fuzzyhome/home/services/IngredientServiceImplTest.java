@@ -1,20 +1,41 @@
 package net.fuzzyhome.home.services;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Path;
+import jakarta.validation.Validator;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.Ingredient;
 import net.fuzzyhome.home.database.entities.IngredientVariant;
+import net.fuzzyhome.home.database.projections.CustomUnitLookup;
+import net.fuzzyhome.home.database.projections.CustomUnitProjection;
+import net.fuzzyhome.home.database.projections.IngredientJson;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.database.projections.IngredientUpsert;
+import net.fuzzyhome.home.database.projections.IngredientVariantLookup;
+import net.fuzzyhome.home.database.projections.IngredientVariantProjection;
+import net.fuzzyhome.home.database.projections.IngredientVersion;
 import net.fuzzyhome.home.database.repositories.CustomUnitRepository;
+import net.fuzzyhome.home.database.repositories.IngredientImportRepository;
+import net.fuzzyhome.home.database.repositories.IngredientReadRepository;
 import net.fuzzyhome.home.database.repositories.IngredientRepository;
+import net.fuzzyhome.home.database.repositories.IngredientUpsertRepository;
 import net.fuzzyhome.home.database.repositories.IngredientVariantRepository;
 import net.fuzzyhome.home.services.errors.BadRequestException;
 import net.fuzzyhome.home.services.errors.NotFoundException;
+import net.fuzzyhome.home.services.errors.PreconditionFailedException;
 import net.fuzzyhome.home.services.mappers.CustomUnitMapper;
 import net.fuzzyhome.home.services.mappers.IngredientMapper;
 import net.fuzzyhome.home.services.mappers.IngredientVariantMapper;
+import net.fuzzyhome.home.services.models.IngredientCursor;
+import net.fuzzyhome.home.services.models.Versioned;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,20 +43,31 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.openapitools.model.CustomUnitDto;
+import org.openapitools.model.CustomUnitPatchRequest;
 import org.openapitools.model.CustomUnitWriteRequest;
+import org.openapitools.model.IngredientBatchResultDto;
+import org.openapitools.model.IngredientBatchStatusDto;
+import org.openapitools.model.IngredientBatchWriteRequest;
 import org.openapitools.model.IngredientDto;
+import org.openapitools.model.IngredientImportResultDto;
+import org.openapitools.model.IngredientPatchRequest;
 import org.openapitools.model.IngredientVariantDto;
+import org.openapitools.model.IngredientVariantPatchRequest;
 import org.openapitools.model.IngredientVariantWriteRequest;
 import org.openapitools.model.IngredientWriteRequest;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchException;
 import static org.instancio.Select.field;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,38 +82,346 @@ class IngredientServiceImplTest {
     @Mock
     private CustomUnitRepository customUnitRepository;
 
+    @Mock
+    private IngredientImportRepository ingredientImportRepository;
+
     @Mock
     private IngredientMapper ingredientMapper;
 
+    @Mock
+    private IngredientReadRepository ingredientReadRepository;
+
     @Mock
     private IngredientRepository ingredientRepository;
 
+    @Mock
+    private IngredientUpsertRepository ingredientUpsertRepository;
+
     @Mock
     private IngredientVariantMapper ingredientVariantMapper;
 
     @Mock
     private IngredientVariantRepository ingredientVariantRepository;
 
+    @Mock
+    private Validator validator;
+
     @Test
     void retrieves_ingredients() {
         // given
-        final var ingredients = Instancio.ofList(Ingredient.class)
+        final var ingredients = Instancio.ofList(IngredientProjection.class)
+            .size(3)
+            .create();
+        final var ingredientDtos = Instancio.ofList(IngredientDto.class)
+            .size(2)
+            .create();
+        when(ingredientReadRepository.findAll(anyInt(), anyInt())).thenReturn(ingredients);
+        when(ingredientMapper.mapIngredientToDto(any(IngredientProjection.class), any(), any()))
+            .thenReturn(ingredientDtos.get(0))
+            .thenReturn(ingredientDtos.get(1));
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredients(1, 2, null, null, false);
+
+        // then
+        verify(ingredientReadRepository).findAll(1, 2);
+        verify(ingredientRepository, never()).estimateCount();
+        assertThat(result.ingredients()).containsExactlyElementsOf(ingredientDtos);
+        assertThat(result.nextCursor()).isEqualTo(IngredientCursor.of(ingredients.get(1)).encode());
+    }
+
+    @Test
+    void retrieves_version_of_ingredients_matching_page() {
+        // given
+        final var ingredients = Instancio.ofList(IngredientProjection.class)
+            .size(3)
+            .create();
+        final var ingredientVersions = ingredients.stream()
+            .map(ingredient -> new IngredientVersion(ingredient.id(), ingredient.version(), ingredient.name()))
+            .toList();
+        when(ingredientReadRepository.findAll(anyInt(), anyInt())).thenReturn(ingredients);
+        when(ingredientReadRepository.findAllVersions(anyInt(), anyInt())).thenReturn(ingredientVersions);
+
+        // when
+        final var result = ingredientServiceImpl.getIngredientsVersion(1, 2, null, null, false);
+
+        // then
+        verify(ingredientReadRepository).findAllVersions(1, 2);
+        verify(ingredientMapper, never()).mapIngredientToDto(any(IngredientProjection.class), any(), any());
+        assertThat(result).isEqualTo(ingredientServiceImpl.getAllIngredients(1, 2, null, null, false).version());
+    }
+
+    @Test
+    void retrieves_different_version_of_ingredients_after_change() {
+        // given
+        final var ingredient = Instancio.of(IngredientVersion.class).create();
+        final var changedIngredient = new IngredientVersion(
+            ingredient.id(),
+            ingredient.version() + 1,
+            ingredient.name()
+        );
+        when(ingredientReadRepository.searchVersionsByName(any(), anyInt(), anyInt()))
+            .thenReturn(List.of(ingredient))
+            .thenReturn(List.of(changedIngredient));
+
+        // when
+        final var result = ingredientServiceImpl.getIngredientsVersion(0, 2, " search ", null, false);
+        final var changedResult = ingredientServiceImpl.getIngredientsVersion(0, 2, " search ", null, false);
+
+        // then
+        verify(ingredientReadRepository, times(2)).searchVersionsByName("search", 0, 2);
+        assertThat(changedResult).isNotEqualTo(result);
+    }
+
+    @Test
+    void retrieves_different_version_of_ingredients_after_total_count_changed() {
+        // given
+        final var ingredients = Instancio.ofList(IngredientVersion.class)
+            .size(2)
+            .create();
+        when(ingredientReadRepository.findAllVersions(anyInt(), anyInt())).thenReturn(ingredients);
+        when(ingredientRepository.estimateCount())
+            .thenReturn(10L)
+            .thenReturn(11L);
+
+        // when
+        final var result = ingredientServiceImpl.getIngredientsVersion(0, 3, null, null, true);
+        final var changedResult = ingredientServiceImpl.getIngredientsVersion(0, 3, null, null, true);
+
+        // then
+        assertThat(changedResult).isNotEqualTo(result);
+    }
+
+    @Test
+    void retrieves_different_version_of_page_with_next_cursor() {
+        // given
+        final var ingredients = Instancio.ofList(IngredientVersion.class)
+            .size(3)
+            .create();
+        when(ingredientReadRepository.findAllVersions(anyInt(), anyInt()))
+            .thenReturn(ingredients.subList(0, 2))
+            .thenReturn(ingredients);
+
+        // when
+        final var result = ingredientServiceImpl.getIngredientsVersion(0, 2, null, null, false);
+        final var nextPageResult = ingredientServiceImpl.getIngredientsVersion(0, 2, null, null, false);
+
+        // then
+        assertThat(nextPageResult).isNotEqualTo(result);
+    }
+
+    @Test
+    void retrieves_version_of_ingredients_after_cursor() {
+        // given
+        final var cursor = new IngredientCursor("name", UUID.randomUUID());
+        when(ingredientReadRepository.findAllVersionsAfter(any(), any(), anyInt())).thenReturn(List.of());
+
+        // when
+        ingredientServiceImpl.getIngredientsVersion(0, 2, null, cursor.encode(), false);
+
+        // then
+        verify(ingredientReadRepository).findAllVersionsAfter(cursor.name(), cursor.id(), 2);
+    }
+
+    @Test
+    void retrieves_ingredients_with_children_loaded_per_page() {
+        // given
+        final var ingredient = Instancio.of(IngredientProjection.class).create();
+        final var ingredientVariants = Instancio.ofList(IngredientVariantProjection.class)
+            .size(2)
+            .set(field(IngredientVariantProjection::ingredientId), ingredient.id())
+            .create();
+        final var customUnits = Instancio.ofList(CustomUnitProjection.class)
+            .size(1)
+            .set(field(CustomUnitProjection::ingredientId), ingredient.id())
+            .create();
+        final var ingredientDto = Instancio.of(IngredientDto.class).create();
+        when(ingredientReadRepository.findAll(anyInt(), anyInt())).thenReturn(List.of(ingredient));
+        when(ingredientReadRepository.findIngredientVariantsByIngredientIds(any())).thenReturn(ingredientVariants);
+        when(ingredientReadRepository.findCustomUnitsByIngredientIds(any())).thenReturn(customUnits);
+        when(ingredientMapper.mapIngredientToDto(ingredient, ingredientVariants, customUnits))
+            .thenReturn(ingredientDto);
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredients(0, 2, null, null, false);
+
+        // then
+        verify(ingredientReadRepository).findIngredientVariantsByIngredientIds(List.of(ingredient.id()));
+        verify(ingredientReadRepository).findCustomUnitsByIngredientIds(List.of(ingredient.id()));
+        assertThat(result.ingredients()).containsExactly(ingredientDto);
+    }
+
+    @Test
+    void retrieves_ingredients_with_search() {
+        // given
+        final var ingredients = Instancio.ofList(IngredientProjection.class)
             .size(2)
             .create();
         final var ingredientDtos = Instancio.ofList(IngredientDto.class)
             .size(2)
             .create();
-        when(ingredientRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(ingredients));
-        when(ingredientMapper.mapIngredientToDto(any(Ingredient.class)))
+        when(ingredientReadRepository.searchByName(any(), anyInt(), anyInt())).thenReturn(ingredients);
+        when(ingredientMapper.mapIngredientToDto(any(IngredientProjection.class), any(), any()))
             .thenReturn(ingredientDtos.get(0))
             .thenReturn(ingredientDtos.get(1));
 
         // when
-        final var result = ingredientServiceImpl.getAllIngredients(1, 2, null);
+        final var result = ingredientServiceImpl.getAllIngredients(0, 2, "  search ", null, true);
+
+        // then
+        verify(ingredientReadRepository).searchByName("search", 0, 2);
+        verify(ingredientReadRepository, never()).findAll(anyInt(), anyInt());
+        verify(ingredientRepository, never()).estimateCount();
+        assertThat(result.ingredients()).containsExactlyElementsOf(ingredientDtos);
+        assertThat(result.estimatedTotalCount()).isNull();
+    }
+
+    @Test
+    void retrieves_ingredients_with_estimated_total_count() {
+        // given
+        when(ingredientReadRepository.findAll(anyInt(), anyInt())).thenReturn(List.of());
+        when(ingredientRepository.estimateCount()).thenReturn(1234L);
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredients(0, 2, null, null, true);
 
         // then
-        verify(ingredientRepository).findAll(any(Pageable.class));
-        assertThat(result).containsExactlyElementsOf(ingredientDtos);
+        verify(ingredientRepository, never()).count();
+        assertThat(result.estimatedTotalCount()).isEqualTo(1234L);
+    }
+
+    @Test
+    void retrieves_ingredients_after_cursor() {
+        // given
+        final var cursor = new IngredientCursor("name", UUID.randomUUID());
+        final var ingredients = Instancio.ofList(IngredientProjection.class)
+            .size(1)
+            .create();
+        final var ingredientDto = Instancio.of(IngredientDto.class).create();
+        when(ingredientReadRepository.findAllAfter(any(), any(), anyInt())).thenReturn(ingredients);
+        when(ingredientMapper.mapIngredientToDto(any(IngredientProjection.class), any(), any()))
+            .thenReturn(ingredientDto);
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredients(5, 2, null, cursor.encode(), false);
+
+        // then
+        verify(ingredientReadRepository).findAllAfter(cursor.name(), cursor.id(), 2);
+        verify(ingredientReadRepository, never()).findAll(anyInt(), anyInt());
+        assertThat(result.ingredients()).containsExactly(ingredientDto);
+        assertThat(result.nextCursor()).isNull();
+    }
+
+    @Test
+    void retrieves_last_full_page_of_ingredients_without_next_cursor() {
+        // given
+        final var cursor = new IngredientCursor("name", UUID.randomUUID());
+        final var ingredients = Instancio.ofList(IngredientProjection.class)
+            .size(2)
+            .create();
+        when(ingredientReadRepository.findAllAfter(any(), any(), anyInt())).thenReturn(ingredients);
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredients(0, 2, null, cursor.encode(), false);
+
+        // then
+        assertThat(result.ingredients()).hasSize(2);
+        assertThat(result.nextCursor()).isNull();
+    }
+
+    @Test
+    void retrieves_ingredients_with_search_after_cursor() {
+        // given
+        final var cursor = new IngredientCursor("name", UUID.randomUUID());
+        when(ingredientReadRepository.searchByNameAfter(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredients(0, 2, "search", cursor.encode(), false);
+
+        // then
+        verify(ingredientReadRepository).searchByNameAfter("search", cursor.name(), cursor.id(), 2);
+        assertThat(result.ingredients()).isEmpty();
+        assertThat(result.nextCursor()).isNull();
+    }
+
+    @Test
+    void fails_to_retrieve_ingredients_since_cursor_invalid() {
+        // when
+        final var exception = catchException(
+            () -> ingredientServiceImpl.getAllIngredients(0, 2, null, "invalid", false)
+        );
+
+        // then
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("Invalid cursor: invalid");
+    }
+
+    @Test
+    void retrieves_ingredients_as_json() {
+        // given
+        final var ingredients = List.of(
+            new IngredientJson(UUID.randomUUID(), 0, "a", "{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8)),
+            new IngredientJson(UUID.randomUUID(), 0, "b", "{\"name\":\"b\"}".getBytes(StandardCharsets.UTF_8)),
+            new IngredientJson(UUID.randomUUID(), 0, "c", "{\"name\":\"c\"}".getBytes(StandardCharsets.UTF_8))
+        );
+        when(ingredientReadRepository.findAllJson(anyInt(), anyInt())).thenReturn(ingredients);
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredientsAsJson(0, 2, null, null, false);
+
+        // then
+        verify(ingredientReadRepository).findAllJson(0, 2);
+        assertThat(new String(result.ingredients(), StandardCharsets.UTF_8))
+            .isEqualTo("[{\"name\":\"a\"},{\"name\":\"b\"}]");
+        assertThat(result.nextCursor()).isEqualTo(IngredientCursor.of(ingredients.get(1)).encode());
+    }
+
+    @Test
+    void retrieves_empty_ingredients_as_json() {
+        // given
+        when(ingredientReadRepository.searchJsonByName(any(), anyInt(), anyInt())).thenReturn(List.of());
+
+        // when
+        final var result = ingredientServiceImpl.getAllIngredientsAsJson(0, 2, " search ", null, true);
+
+        // then
+        verify(ingredientReadRepository).searchJsonByName("search", 0, 2);
+        verify(ingredientRepository, never()).estimateCount();
+        assertThat(new String(result.ingredients(), StandardCharsets.UTF_8)).isEqualTo("[]");
+        assertThat(result.nextCursor()).isNull();
+        assertThat(result.estimatedTotalCount()).isNull();
+    }
+
+    @Test
+    void retrieves_ingredients_as_json_after_cursor() {
+        // given
+        final var cursor = new IngredientCursor("name", UUID.randomUUID());
+        when(ingredientReadRepository.findAllJsonAfter(any(), any(), anyInt())).thenReturn(List.of());
+
+        // when
+        ingredientServiceImpl.getAllIngredientsAsJson(0, 2, null, cursor.encode(), false);
+
+        // then
+        verify(ingredientReadRepository).findAllJsonAfter(cursor.name(), cursor.id(), 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exports_ingredients() {
+        // given
+        final var json = "{}".getBytes(StandardCharsets.UTF_8);
+        doAnswer(invocation -> {
+            invocation.<Consumer<IngredientJson>>getArgument(0)
+                .accept(new IngredientJson(UUID.randomUUID(), 0, "name", json));
+            return null;
+        }).when(ingredientReadRepository).streamAllJson(any());
+        final Consumer<byte[]> consumer = mock(Consumer.class);
+
+        // when
+        ingredientServiceImpl.exportIngredients(consumer);
+
+        // then
+        verify(consumer).accept(json);
     }
 
     @Test
@@ -105,199 +445,781 @@ class IngredientServiceImplTest {
         // then
         assertThat(result).isEqualTo(ingredientDto);
         verify(ingredientRepository).save(ingredient);
-        verify(ingredientVariantRepository, never()).save(any());
-        verify(ingredientVariantRepository).saveAllAndFlush(List.of());
+        verifyNoInteractions(ingredientVariantRepository);
+    }
+
+    @Test
+    void fails_to_create_ingredient_since_defaultVariantId_not_found() {
+        // given
+        final var defaultVariantId = UUID.randomUUID();
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), defaultVariantId)
+            .create();
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.createIngredient(ingredientWriteRequest));
+
+        // then
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessageContaining(String.format("Ingredient variant not found for id: %s", defaultVariantId));
+        verify(ingredientRepository, never()).save(any());
+    }
+
+    @Test
+    void creates_ingredients_in_batch() {
+        // given
+        final var ingredientBatchWriteRequests = Instancio.ofList(IngredientBatchWriteRequest.class)
+            .size(2)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .set(field(IngredientBatchWriteRequest::getCustomUnits), null)
+            .create();
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(2)
+            .create();
+        final var ingredientDtos = Instancio.ofList(IngredientDto.class)
+            .size(2)
+            .create();
+        when(ingredientRepository.findExistingNames(any())).thenReturn(List.of());
+        when(ingredientMapper.mapBatchWriteRequestToIngredient(any()))
+            .thenReturn(ingredients.get(0))
+            .thenReturn(ingredients.get(1));
+        when(ingredientRepository.save(any())).then(invocation -> invocation.getArgument(0));
+        when(ingredientMapper.mapIngredientToDto(any(Ingredient.class)))
+            .thenReturn(ingredientDtos.get(0))
+            .thenReturn(ingredientDtos.get(1));
+
+        // when
+        final var result = ingredientServiceImpl.createIngredients(ingredientBatchWriteRequests);
+
+        // then
+        verify(ingredientRepository).findExistingNames(ingredientBatchWriteRequests.stream()
+            .map(ingredientBatchWriteRequest -> ingredientBatchWriteRequest.getIngredient().getName())
+            .toList());
+        final var inOrder = inOrder(ingredientRepository);
+        inOrder.verify(ingredientRepository).save(ingredients.get(0));
+        inOrder.verify(ingredientRepository).save(ingredients.get(1));
+        inOrder.verify(ingredientRepository).flush();
+        assertThat(result).extracting(IngredientBatchResultDto::getStatus)
+            .containsExactly(IngredientBatchStatusDto.CREATED, IngredientBatchStatusDto.CREATED);
+        assertThat(result).extracting(IngredientBatchResultDto::getIngredient)
+            .containsExactlyElementsOf(ingredientDtos);
+    }
+
+    @Test
+    void rejects_batch_items_with_taken_names() {
+        // given
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "name")
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .set(field(IngredientBatchWriteRequest::getIngredientVariants), null)
+            .set(field(IngredientBatchWriteRequest::getCustomUnits), null)
+            .create();
+        final var existingIngredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "existing")
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        when(ingredientRepository.findExistingNames(any())).thenReturn(List.of("existing"));
+        when(ingredientMapper.mapBatchWriteRequestToIngredient(ingredientBatchWriteRequest)).thenReturn(ingredient);
+        when(ingredientRepository.save(ingredient)).thenReturn(ingredient);
+
+        // when
+        final var result = ingredientServiceImpl.createIngredients(List.of(
+            ingredientBatchWriteRequest,
+            existingIngredientBatchWriteRequest,
+            ingredientBatchWriteRequest
+        ));
+
+        // then
+        verify(ingredientRepository).findExistingNames(List.of("name", "existing"));
+        verify(ingredientRepository).save(ingredient);
+        assertThat(result).extracting(IngredientBatchResultDto::getStatus)
+            .containsExactly(
+                IngredientBatchStatusDto.CREATED,
+                IngredientBatchStatusDto.FAILED,
+                IngredientBatchStatusDto.FAILED
+            );
+        assertThat(result.get(1).getError().getMessage()).isEqualTo("Ingredient name already taken: existing");
+        assertThat(result.get(2).getError().getMessage()).isEqualTo("Ingredient name already taken: name");
+    }
+
+    @Test
+    void rejects_batch_item_with_defaultVariantId() {
+        // given
+        final var defaultVariantId = UUID.randomUUID();
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), defaultVariantId)
+            .create();
+        when(ingredientRepository.findExistingNames(any())).thenReturn(List.of());
+
+        // when
+        final var result = ingredientServiceImpl.createIngredients(List.of(ingredientBatchWriteRequest));
+
+        // then
+        verify(ingredientRepository, never()).save(any());
+        assertThat(result).singleElement()
+            .extracting(resultItem -> resultItem.getError().getMessage())
+            .isEqualTo(String.format("Ingredient variant not found for id: %s", defaultVariantId));
+    }
+
+    @Test
+    void rejects_batch_item_with_duplicate_variant_descriptions() {
+        // given
+        final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class).create();
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .set(
+                field(IngredientBatchWriteRequest::getIngredientVariants),
+                List.of(ingredientVariantWriteRequest, ingredientVariantWriteRequest)
+            )
+            .create();
+        when(ingredientRepository.findExistingNames(any())).thenReturn(List.of());
+
+        // when
+        final var result = ingredientServiceImpl.createIngredients(List.of(ingredientBatchWriteRequest));
+
+        // then
+        verify(ingredientRepository, never()).save(any());
+        assertThat(result).singleElement()
+            .extracting(resultItem -> resultItem.getError().getMessage())
+            .isEqualTo(String.format(
+                "Duplicate ingredient variant description: %s",
+                ingredientVariantWriteRequest.getDescription()
+            ));
+    }
+
+    @Test
+    void rejects_batch_item_with_generic_custom_unit_name() {
+        // given
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .set(field(IngredientBatchWriteRequest::getIngredientVariants), null)
+            .set(
+                field(IngredientBatchWriteRequest::getCustomUnits),
+                List.of(CustomUnitWriteRequest.builder()
+                    .name("Gram")
+                    .build())
+            )
+            .create();
+        when(ingredientRepository.findExistingNames(any())).thenReturn(List.of());
+
+        // when
+        final var result = ingredientServiceImpl.createIngredients(List.of(ingredientBatchWriteRequest));
+
+        // then
+        verify(ingredientRepository, never()).save(any());
+        assertThat(result).singleElement()
+            .extracting(resultItem -> resultItem.getError().getMessage())
+            .isEqualTo("Custom unit name must not be a generic unit: Gram");
+    }
+
+    @Test
+    void imports_ingredients() {
+        // given
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientIds = new ArrayList<UUID>();
+        final var ingredientVariants = new ArrayList<IngredientVariant>();
+        final var customUnits = new ArrayList<CustomUnit>();
+        when(ingredientMapper.mapBatchWriteRequestToIngredient(ingredientBatchWriteRequest)).thenReturn(ingredient);
+        when(ingredientImportRepository.copyIngredients(any())).then(invocation -> {
+            invocation.<Stream<Ingredient>>getArgument(0).forEach(copied -> ingredientIds.add(copied.getId()));
+            return (long) ingredientIds.size();
+        });
+        when(ingredientImportRepository.copyIngredientVariants(any())).then(invocation -> {
+            invocation.<Stream<IngredientVariant>>getArgument(0).forEach(ingredientVariants::add);
+            return (long) ingredientVariants.size();
+        });
+        when(ingredientImportRepository.copyCustomUnits(any())).then(invocation -> {
+            invocation.<Stream<CustomUnit>>getArgument(0).forEach(customUnits::add);
+            return (long) customUnits.size();
+        });
+        when(ingredientImportRepository.findViolations(anyInt())).thenReturn(List.of());
+
+        // when
+        final var result = ingredientServiceImpl.importIngredients(List.of(ingredientBatchWriteRequest).iterator());
+
+        // then
+        final var inOrder = inOrder(ingredientImportRepository);
+        inOrder.verify(ingredientImportRepository).createStagingTables();
+        inOrder.verify(ingredientImportRepository).copyIngredients(any());
+        inOrder.verify(ingredientImportRepository).findViolations(anyInt());
+        inOrder.verify(ingredientImportRepository).mergeStagingTables();
+        assertThat(ingredientIds).singleElement()
+            .satisfies(ingredientId -> assertThat(ingredientId.version()).isEqualTo(7));
+        assertThat(ingredientVariants).containsExactlyElementsOf(ingredient.getIngredientVariants());
+        assertThat(ingredientVariants).allSatisfy(
+            ingredientVariant -> assertThat(ingredientVariant.getId().version()).isEqualTo(7)
+        );
+        assertThat(customUnits).containsExactlyElementsOf(ingredient.getCustomUnits());
+        assertThat(customUnits).allSatisfy(customUnit -> assertThat(customUnit.getId().version()).isEqualTo(7));
+        assertThat(result).isEqualTo(IngredientImportResultDto.builder()
+            .ingredients(1L)
+            .ingredientVariants((long) ingredientVariants.size())
+            .customUnits((long) customUnits.size())
+            .build());
+    }
+
+    @Test
+    void fails_to_import_ingredients_with_violations() {
+        // given
+        when(ingredientImportRepository.findViolations(anyInt())).thenReturn(List.of(
+            "Duplicate ingredient name: name",
+            "Ingredient name already taken: existing"
+        ));
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.importIngredients(
+            List.<IngredientBatchWriteRequest>of().iterator()
+        ));
+
+        // then
+        verify(ingredientImportRepository, never()).mergeStagingTables();
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessage("Duplicate ingredient name: name; Ingredient name already taken: existing");
+    }
+
+    @Test
+    void fails_to_import_invalid_ingredient_without_copying_it() {
+        // given
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        final ConstraintViolation<IngredientBatchWriteRequest> constraintViolation = mock();
+        final Path propertyPath = mock();
+        when(propertyPath.toString()).thenReturn("ingredient.name");
+        when(constraintViolation.getPropertyPath()).thenReturn(propertyPath);
+        when(constraintViolation.getMessage()).thenReturn("must not be null");
+        when(validator.validate(ingredientBatchWriteRequest)).thenReturn(Set.of(constraintViolation));
+        when(ingredientImportRepository.copyIngredients(any()))
+            .then(invocation -> invocation.<Stream<Ingredient>>getArgument(0).count());
+        when(ingredientImportRepository.findViolations(19)).thenReturn(List.of("Duplicate ingredient name: name"));
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.importIngredients(
+            List.of(ingredientBatchWriteRequest).iterator()
+        ));
+
+        // then
+        verify(ingredientMapper, never()).mapBatchWriteRequestToIngredient(any());
+        verify(ingredientImportRepository, never()).mergeStagingTables();
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessage("Invalid ingredient 1: ingredient.name must not be null; Duplicate ingredient name: name");
+    }
+
+    @Test
+    void fails_to_import_ingredient_with_defaultVariantId() {
+        // given
+        final var ingredientBatchWriteRequest = Instancio.create(IngredientBatchWriteRequest.class);
+        when(ingredientImportRepository.copyIngredients(any()))
+            .then(invocation -> invocation.<Stream<Ingredient>>getArgument(0).count());
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.importIngredients(
+            List.of(ingredientBatchWriteRequest).iterator()
+        ));
+
+        // then
+        verify(ingredientImportRepository, never()).mergeStagingTables();
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessage(String.format(
+                "Ingredient variant not found for id: %s",
+                ingredientBatchWriteRequest.getIngredient().getDefaultVariantId()
+            ));
+    }
+
+    @Test
+    void upserts_ingredient_by_name() {
+        // given
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "name")
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var projection = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::name), "name")
+            .create();
+        final var ingredientDto = Instancio.create(IngredientDto.class);
+        when(ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)).thenReturn(ingredient);
+        when(ingredientUpsertRepository.upsertByName(List.of(ingredient)))
+            .thenReturn(List.of(new IngredientUpsert(projection, true)));
+        when(ingredientMapper.mapIngredientToDto(projection, List.of(), List.of())).thenReturn(ingredientDto);
+
+        // when
+        final var result = ingredientServiceImpl.upsertIngredientByName("name", ingredientWriteRequest);
+
+        // then
+        assertThat(ingredient.getId().version()).isEqualTo(7);
+        assertThat(result.ingredient()).isEqualTo(new Versioned<>(ingredientDto, projection.version()));
+        assertThat(result.created()).isTrue();
+    }
+
+    @Test
+    void fails_to_upsert_ingredient_by_name_not_matching_path() {
+        // given
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "other")
+            .create();
+
+        // when
+        final var exception = catchException(
+            () -> ingredientServiceImpl.upsertIngredientByName("name", ingredientWriteRequest)
+        );
+
+        // then
+        verifyNoInteractions(ingredientUpsertRepository);
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessage("Ingredient name does not match path: other");
+    }
+
+    @Test
+    void fails_to_upsert_ingredient_with_defaultVariantId() {
+        // given
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getName), "name")
+            .create();
+
+        // when
+        final var exception = catchException(
+            () -> ingredientServiceImpl.upsertIngredientByName("name", ingredientWriteRequest)
+        );
+
+        // then
+        verifyNoInteractions(ingredientUpsertRepository);
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessage(String.format(
+                "Default variant cannot be set by an upsert: %s",
+                ingredientWriteRequest.getDefaultVariantId()
+            ));
+    }
+
+    @Test
+    void upserts_ingredients_by_name_in_order_of_request() {
+        // given
+        final var ingredientWriteRequests = Instancio.ofList(IngredientWriteRequest.class)
+            .size(2)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        final var ingredients = Instancio.ofList(Ingredient.class)
+            .size(2)
+            .create();
+        final var created = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::name), ingredientWriteRequests.get(0).getName())
+            .create();
+        final var updated = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::name), ingredientWriteRequests.get(1).getName())
+            .create();
+        final var ingredientDtos = Instancio.ofList(IngredientDto.class)
+            .size(2)
+            .create();
+        when(ingredientMapper.mapWriteRequestToIngredient(any()))
+            .thenReturn(ingredients.get(0))
+            .thenReturn(ingredients.get(1));
+        when(ingredientUpsertRepository.upsertByName(ingredients)).thenReturn(List.of(
+            new IngredientUpsert(updated, false),
+            new IngredientUpsert(created, true)
+        ));
+        when(ingredientMapper.mapIngredientToDto(created, List.of(), List.of())).thenReturn(ingredientDtos.get(0));
+        when(ingredientMapper.mapIngredientToDto(updated, List.of(), List.of())).thenReturn(ingredientDtos.get(1));
+
+        // when
+        final var result = ingredientServiceImpl.upsertIngredientsByName(ingredientWriteRequests);
+
+        // then
+        assertThat(result).extracting(IngredientBatchResultDto::getStatus)
+            .containsExactly(IngredientBatchStatusDto.CREATED, IngredientBatchStatusDto.UPDATED);
+        assertThat(result).extracting(IngredientBatchResultDto::getIngredient)
+            .containsExactlyElementsOf(ingredientDtos);
+    }
+
+    @Test
+    void fails_to_upsert_ingredients_with_duplicate_names() {
+        // given
+        final var ingredientWriteRequests = Instancio.ofList(IngredientWriteRequest.class)
+            .size(2)
+            .set(field(IngredientWriteRequest::getName), "name")
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+
+        // when
+        final var exception = catchException(
+            () -> ingredientServiceImpl.upsertIngredientsByName(ingredientWriteRequests)
+        );
+
+        // then
+        verifyNoInteractions(ingredientUpsertRepository);
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessage("Duplicate ingredient name: name");
+    }
+
+    @Test
+    void retrieves_ingredient() {
+        // given
+        final var id = UUID.randomUUID();
+        final var ingredient = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::id), id)
+            .create();
+        final var ingredientVariants = Instancio.ofList(IngredientVariantProjection.class)
+            .set(field(IngredientVariantProjection::ingredientId), id)
+            .create();
+        final var customUnits = Instancio.ofList(CustomUnitProjection.class)
+            .set(field(CustomUnitProjection::ingredientId), id)
+            .create();
+        final var ingredientDto = Instancio.of(IngredientDto.class)
+            .set(field(IngredientDto::getId), id)
+            .create();
+        when(ingredientReadRepository.findById(any())).thenReturn(Optional.of(ingredient));
+        when(ingredientReadRepository.findIngredientVariantsByIngredientIds(any())).thenReturn(ingredientVariants);
+        when(ingredientReadRepository.findCustomUnitsByIngredientIds(any())).thenReturn(customUnits);
+        when(ingredientMapper.mapIngredientToDto(ingredient, ingredientVariants, customUnits))
+            .thenReturn(ingredientDto);
+
+        // when
+        final var result = ingredientServiceImpl.getIngredientById(id);
+
+        // then
+        verify(ingredientReadRepository).findById(id);
+        verify(ingredientReadRepository).findIngredientVariantsByIngredientIds(List.of(id));
+        verify(ingredientReadRepository).findCustomUnitsByIngredientIds(List.of(id));
+        assertThat(result).isEqualTo(new Versioned<>(ingredientDto, ingredient.version()));
+    }
+
+    @Test
+    void retrieves_ingredient_version() {
+        // given
+        final var id = UUID.randomUUID();
+        when(ingredientReadRepository.findVersionById(any())).thenReturn(Optional.of(3L));
+
+        // when
+        final var result = ingredientServiceImpl.getIngredientVersion(id);
+
+        // then
+        verify(ingredientReadRepository).findVersionById(id);
+        verifyNoInteractions(ingredientMapper);
+        assertThat(result).isEqualTo(3);
+    }
+
+    @Test
+    void fails_to_retrieve_ingredient_version_since_missing() {
+        // given
+        final var id = UUID.randomUUID();
+        when(ingredientReadRepository.findVersionById(id)).thenReturn(Optional.empty());
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.getIngredientVersion(id));
+
+        // then
+        assertThat(exception).isInstanceOf(NotFoundException.class)
+            .hasMessageContaining(String.format("Ingredient not found for id: %s", id));
+    }
+
+    @Test
+    void retrieves_ingredient_as_json() {
+        // given
+        final var id = UUID.randomUUID();
+        final var json = "{}".getBytes(StandardCharsets.UTF_8);
+        when(ingredientReadRepository.findJsonById(any()))
+            .thenReturn(Optional.of(new IngredientJson(id, 3, "name", json)));
+
+        // when
+        final var result = ingredientServiceImpl.getIngredientByIdAsJson(id);
+
+        // then
+        verify(ingredientReadRepository).findJsonById(id);
+        assertThat(result.value()).isSameAs(json);
+        assertThat(result.version()).isEqualTo(3);
+    }
+
+    @Test
+    void fails_to_retrieve_ingredient_as_json_since_missing() {
+        // given
+        final var id = UUID.randomUUID();
+        when(ingredientReadRepository.findJsonById(id)).thenReturn(Optional.empty());
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.getIngredientByIdAsJson(id));
+
+        // then
+        assertThat(exception).isInstanceOf(NotFoundException.class)
+            .hasMessageContaining(String.format("Ingredient not found for id: %s", id));
+    }
+
+    @Test
+    void fails_to_retrieve_ingredient_since_missing() {
+        // given
+        final var id = UUID.randomUUID();
+        when(ingredientReadRepository.findById(id)).thenReturn(Optional.empty());
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.getIngredientById(id));
+
+        // then
+        assertThat(exception).isInstanceOf(NotFoundException.class)
+            .hasMessageContaining(String.format("Ingredient not found for id: %s", id));
+    }
+
+    @Test
+    void updates_ingredient() {
+        // given
+        final var id = UUID.randomUUID();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientProjection = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::id), id)
+            .create();
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        final var ingredientDto = Instancio.of(IngredientDto.class)
+            .set(field(IngredientDto::getId), id)
+            .create();
+        when(ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)).thenReturn(ingredient);
+        when(ingredientRepository.update(id, null, ingredient)).thenReturn(1);
+        when(ingredientReadRepository.findById(id)).thenReturn(Optional.of(ingredientProjection));
+        when(ingredientMapper.mapIngredientToDto(ingredientProjection, List.of(), List.of())).thenReturn(ingredientDto);
+
+        // when
+        final var result = ingredientServiceImpl.updateIngredient(id, null, ingredientWriteRequest);
+
+        // then
+        verify(ingredientRepository).update(id, null, ingredient);
+        verify(ingredientVariantRepository).clearDefaultVariant(id);
+        verify(ingredientVariantRepository, never()).markDefaultVariant(any(), any());
+        assertThat(result).isEqualTo(new Versioned<>(ingredientDto, ingredientProjection.version()));
+    }
+
+    @Test
+    void updates_ingredient_with_expected_version() {
+        // given
+        final var id = UUID.randomUUID();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientProjection = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::id), id)
+            .create();
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
+            .create();
+        when(ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)).thenReturn(ingredient);
+        when(ingredientRepository.update(id, 7L, ingredient)).thenReturn(1);
+        when(ingredientReadRepository.findById(id)).thenReturn(Optional.of(ingredientProjection));
+        when(ingredientMapper.mapIngredientToDto(ingredientProjection, List.of(), List.of()))
+            .thenReturn(Instancio.of(IngredientDto.class).create());
+
+        // when
+        ingredientServiceImpl.updateIngredient(id, 7L, ingredientWriteRequest);
+
+        // then
+        verify(ingredientRepository).update(id, 7L, ingredient);
+        verify(ingredientRepository, never()).existsById(any());
+    }
+
+    @Test
+    void updates_ingredient_and_sets_default_variant() {
+        // given
+        final var id = UUID.randomUUID();
+        final var defaultVariantId = UUID.randomUUID();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientProjection = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::id), id)
+            .create();
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
+            .set(field(IngredientWriteRequest::getDefaultVariantId), defaultVariantId)
+            .create();
+        final var ingredientDto = Instancio.of(IngredientDto.class)
+            .set(field(IngredientDto::getId), id)
+            .create();
+        when(ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)).thenReturn(ingredient);
+        when(ingredientRepository.update(id, null, ingredient)).thenReturn(1);
+        when(ingredientVariantRepository.markDefaultVariant(id, defaultVariantId)).thenReturn(1);
+        when(ingredientReadRepository.findById(id)).thenReturn(Optional.of(ingredientProjection));
+        when(ingredientMapper.mapIngredientToDto(ingredientProjection, List.of(), List.of())).thenReturn(ingredientDto);
+
+        // when
+        final var result = ingredientServiceImpl.updateIngredient(id, null, ingredientWriteRequest);
+
+        // then
+        final var inOrder = inOrder(ingredientRepository, ingredientVariantRepository);
+        inOrder.verify(ingredientRepository).update(id, null, ingredient);
+        inOrder.verify(ingredientVariantRepository).clearDefaultVariant(id);
+        inOrder.verify(ingredientVariantRepository).markDefaultVariant(id, defaultVariantId);
+        assertThat(result.value()).isEqualTo(ingredientDto);
+    }
+
+    @Test
+    void fails_to_update_ingredient_since_missing() {
+        // given
+        final var id = UUID.randomUUID();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class).create();
+        when(ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)).thenReturn(ingredient);
+        when(ingredientRepository.update(id, null, ingredient)).thenReturn(0);
+        when(ingredientRepository.existsById(id)).thenReturn(false);
+
+        // when
+        final var exception = catchException(
+            () -> ingredientServiceImpl.updateIngredient(id, null, ingredientWriteRequest)
+        );
+
+        // then
+        assertThat(exception).isInstanceOf(NotFoundException.class)
+            .hasMessageContaining(String.format("Ingredient not found for id: %s", id));
+        verify(ingredientVariantRepository, never()).clearDefaultVariant(any());
     }
 
     @Test
-    void fails_to_create_ingredient_since_defaultVariantId_not_found() {
+    void patches_ingredient() {
         // given
-        final var ingredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getIngredientVariants), new ArrayList<>())
+        final var id = UUID.randomUUID();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientProjection = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::id), id)
             .create();
-        final var defaultVariantId = UUID.randomUUID();
-        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
-            .set(field(IngredientWriteRequest::getDefaultVariantId), defaultVariantId)
+        final var ingredientPatchRequest = new IngredientPatchRequest().name("name");
+        final var ingredientDto = Instancio.of(IngredientDto.class)
+            .set(field(IngredientDto::getId), id)
             .create();
-
-        when(ingredientRepository.save(any())).thenReturn(ingredient);
-        when(ingredientMapper.mapWriteRequestToIngredient(any())).thenReturn(ingredient);
+        when(ingredientRepository.findById(id)).thenReturn(Optional.of(ingredient));
+        when(ingredientMapper.patchIngredient(ingredient, ingredientPatchRequest)).thenReturn(ingredient);
+        when(ingredientReadRepository.findById(id)).thenReturn(Optional.of(ingredientProjection));
+        when(ingredientMapper.mapIngredientToDto(ingredientProjection, List.of(), List.of())).thenReturn(ingredientDto);
 
         // when
-        final var exception = catchException(() -> ingredientServiceImpl.createIngredient(ingredientWriteRequest));
+        final var result = ingredientServiceImpl.patchIngredient(id, ingredient.getVersion(), ingredientPatchRequest);
 
         // then
-        assertThat(exception).isInstanceOf(BadRequestException.class)
-            .hasMessageContaining(String.format("Ingredient variant not found for id: %s", defaultVariantId));
+        verify(ingredientRepository).saveAndFlush(ingredient);
+        verify(ingredientRepository, never()).incrementVersion(any());
+        verify(ingredientRepository, never()).incrementVersion(any(), any());
+        verifyNoInteractions(ingredientVariantRepository);
+        assertThat(result).isEqualTo(new Versioned<>(ingredientDto, ingredientProjection.version()));
     }
 
     @Test
-    void retrieves_ingredient() {
+    void patches_default_variant_of_ingredient() {
         // given
         final var id = UUID.randomUUID();
-        final var ingredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), id)
-            .create();
-        final var ingredientDto = Instancio.of(IngredientDto.class)
-            .set(field(IngredientDto::getId), id)
+        final var defaultVariantId = UUID.randomUUID();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientProjection = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::id), id)
             .create();
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(ingredient));
-        when(ingredientMapper.mapIngredientToDto(ingredient))
-            .thenReturn(ingredientDto);
+        final var ingredientPatchRequest = new IngredientPatchRequest().defaultVariantId(defaultVariantId);
+        when(ingredientRepository.findById(id)).thenReturn(Optional.of(ingredient));
+        when(ingredientMapper.patchIngredient(ingredient, ingredientPatchRequest)).thenReturn(ingredient);
+        when(ingredientRepository.saveAndFlush(ingredient)).thenReturn(ingredient);
+        when(ingredientRepository.incrementVersion(id, ingredient.getVersion())).thenReturn(1);
+        when(ingredientVariantRepository.markDefaultVariant(id, defaultVariantId)).thenReturn(1);
+        when(ingredientReadRepository.findById(id)).thenReturn(Optional.of(ingredientProjection));
 
         // when
-        final var result = ingredientServiceImpl.getIngredientById(id);
+        ingredientServiceImpl.patchIngredient(id, null, ingredientPatchRequest);
 
         // then
-        verify(ingredientRepository).findById(id);
-        assertThat(result).isEqualTo(ingredientDto);
+        final var inOrder = inOrder(ingredientRepository, ingredientVariantRepository);
+        inOrder.verify(ingredientRepository).saveAndFlush(ingredient);
+        inOrder.verify(ingredientRepository).incrementVersion(id, ingredient.getVersion());
+        inOrder.verify(ingredientVariantRepository).clearDefaultVariant(id);
+        inOrder.verify(ingredientVariantRepository).markDefaultVariant(id, defaultVariantId);
     }
 
     @Test
-    void fails_to_retrieve_ingredient_since_missing() {
+    void fails_to_patch_default_variant_of_ingredient_since_changed_after_read() {
         // given
         final var id = UUID.randomUUID();
-        when(ingredientRepository.findById(id)).thenReturn(Optional.empty());
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientPatchRequest = new IngredientPatchRequest().defaultVariantId(UUID.randomUUID());
+        when(ingredientRepository.findById(id)).thenReturn(Optional.of(ingredient));
+        when(ingredientMapper.patchIngredient(ingredient, ingredientPatchRequest)).thenReturn(ingredient);
+        when(ingredientRepository.saveAndFlush(ingredient)).thenReturn(ingredient);
+        // a concurrent write incremented the version between the read and the switch
+        when(ingredientRepository.incrementVersion(id, ingredient.getVersion())).thenReturn(0);
 
         // when
-        final var exception = catchException(() -> ingredientServiceImpl.getIngredientById(id));
+        final var exception = catchException(
+            () -> ingredientServiceImpl.patchIngredient(id, ingredient.getVersion(), ingredientPatchRequest)
+        );
 
         // then
-        assertThat(exception).isInstanceOf(NotFoundException.class)
-            .hasMessageContaining(String.format("Ingredient not found for id: %s", id));
+        assertThat(exception).isInstanceOf(PreconditionFailedException.class)
+            .hasMessage(String.format("Ingredient has changed for id: %s", id));
+        verifyNoInteractions(ingredientVariantRepository);
     }
 
     @Test
-    void updates_ingredient() {
+    void fails_to_patch_ingredient_since_changed() {
         // given
         final var id = UUID.randomUUID();
         final var ingredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), id)
-            .create();
-        final var updatedIngredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), id)
-            .set(field(Ingredient::getIngredientVariants), new ArrayList<>())
-            .create();
-        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
-            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
-            .create();
-        final var ingredientDto = Instancio.of(IngredientDto.class)
-            .set(field(IngredientDto::getId), id)
+            .set(field(Ingredient::getVersion), 2L)
             .create();
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(ingredient));
-        when(ingredientRepository.save(any())).thenReturn(updatedIngredient);
-        when(ingredientMapper.updateIngredientFromWriteRequest(
-            ingredient,
-            ingredientWriteRequest
-        )).thenReturn(updatedIngredient);
-        when(ingredientMapper.mapIngredientToDto(updatedIngredient)).thenReturn(ingredientDto);
+        when(ingredientRepository.findById(id)).thenReturn(Optional.of(ingredient));
 
         // when
-        final var result = ingredientServiceImpl.updateIngredient(id, ingredientWriteRequest);
+        final var exception = catchException(
+            () -> ingredientServiceImpl.patchIngredient(id, 1L, new IngredientPatchRequest().name("name"))
+        );
 
         // then
-        verify(ingredientRepository).findById(id);
-        verify(ingredientRepository).save(updatedIngredient);
-        verify(ingredientVariantRepository, never()).save(any());
-        verify(ingredientVariantRepository).saveAllAndFlush(List.of());
-        assertThat(result).isEqualTo(ingredientDto);
+        assertThat(exception).isInstanceOf(PreconditionFailedException.class)
+            .hasMessage(String.format("Ingredient has changed for id: %s", id));
+        verify(ingredientRepository, never()).saveAndFlush(any());
     }
 
     @Test
-    void updates_ingredient_and_sets_default_variant() {
+    void fails_to_patch_ingredient_since_missing() {
         // given
         final var id = UUID.randomUUID();
-        final var previousDefault = Instancio.of(IngredientVariant.class)
-            .set(field(IngredientVariant::getDefaultVariant), true)
-            .create();
-        final var newDefault = Instancio.of(IngredientVariant.class)
-            .set(field(IngredientVariant::getDefaultVariant), false)
-            .create();
-        final var updatedIngredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), id)
-            .set(field(Ingredient::getIngredientVariants), new ArrayList<>(List.of(previousDefault, newDefault)))
-            .create();
-        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
-            .set(field(IngredientWriteRequest::getDefaultVariantId), newDefault.getId())
-            .create();
-        final var ingredientDto = Instancio.of(IngredientDto.class)
-            .set(field(IngredientDto::getId), id)
-            .create();
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(updatedIngredient));
-        when(ingredientRepository.save(any())).thenReturn(updatedIngredient);
-        when(ingredientMapper.updateIngredientFromWriteRequest(
-            updatedIngredient,
-            ingredientWriteRequest
-        )).thenReturn(updatedIngredient);
-        when(ingredientMapper.mapIngredientToDto(updatedIngredient)).thenReturn(ingredientDto);
+        when(ingredientRepository.findById(id)).thenReturn(Optional.empty());
 
         // when
-        final var result = ingredientServiceImpl.updateIngredient(id, ingredientWriteRequest);
+        final var exception = catchException(
+            () -> ingredientServiceImpl.patchIngredient(id, null, new IngredientPatchRequest().name("name"))
+        );
 
         // then
-        assertThat(previousDefault.getDefaultVariant()).isFalse();
-        assertThat(newDefault.getDefaultVariant()).isTrue();
-        verify(ingredientVariantRepository).saveAllAndFlush(List.of(previousDefault));
-        verify(ingredientVariantRepository).save(newDefault);
-        assertThat(result).isEqualTo(ingredientDto);
+        assertThat(exception).isInstanceOf(NotFoundException.class)
+            .hasMessage(String.format("Ingredient not found for id: %s", id));
     }
 
     @Test
-    void updates_ingredient_and_clears_default_variant_when_defaultVariantId_omitted() {
+    void fails_to_update_ingredient_since_changed() {
         // given
         final var id = UUID.randomUUID();
-        final var currentDefault = Instancio.of(IngredientVariant.class)
-            .set(field(IngredientVariant::getDefaultVariant), true)
-            .create();
-        final var updatedIngredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), id)
-            .set(field(Ingredient::getIngredientVariants), new ArrayList<>(List.of(currentDefault)))
-            .create();
-        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
-            .set(field(IngredientWriteRequest::getDefaultVariantId), null)
-            .create();
-        final var ingredientDto = Instancio.of(IngredientDto.class)
-            .set(field(IngredientDto::getId), id)
-            .create();
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(updatedIngredient));
-        when(ingredientRepository.save(any())).thenReturn(updatedIngredient);
-        when(ingredientMapper.updateIngredientFromWriteRequest(
-            updatedIngredient,
-            ingredientWriteRequest
-        )).thenReturn(updatedIngredient);
-        when(ingredientMapper.mapIngredientToDto(updatedIngredient)).thenReturn(ingredientDto);
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class).create();
+        when(ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)).thenReturn(ingredient);
+        when(ingredientRepository.update(id, 7L, ingredient)).thenReturn(0);
+        when(ingredientRepository.existsById(id)).thenReturn(true);
 
         // when
-        ingredientServiceImpl.updateIngredient(id, ingredientWriteRequest);
+        final var exception = catchException(
+            () -> ingredientServiceImpl.updateIngredient(id, 7L, ingredientWriteRequest)
+        );
 
         // then
-        assertThat(currentDefault.getDefaultVariant()).isFalse();
-        verify(ingredientVariantRepository).saveAllAndFlush(List.of(currentDefault));
-        verify(ingredientVariantRepository, never()).save(any());
+        assertThat(exception).isInstanceOf(PreconditionFailedException.class)
+            .hasMessageContaining(String.format("Ingredient has changed for id: %s", id));
+        verify(ingredientVariantRepository, never()).clearDefaultVariant(any());
     }
 
     @Test
     void fails_to_update_ingredient_since_defaultVariantId_not_found() {
         // given
         final var id = UUID.randomUUID();
-        final var otherIngredientVariant = Instancio.of(IngredientVariant.class).create();
-        final var updatedIngredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), id)
-            .set(field(Ingredient::getIngredientVariants), new ArrayList<>(List.of(otherIngredientVariant)))
-            .create();
+        final var ingredient = Instancio.of(Ingredient.class).create();
         final var defaultVariantId = UUID.randomUUID();
         final var ingredientWriteRequest = Instancio.of(IngredientWriteRequest.class)
             .set(field(IngredientWriteRequest::getDefaultVariantId), defaultVariantId)
             .create();
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(updatedIngredient));
-        when(ingredientRepository.save(any())).thenReturn(updatedIngredient);
-        when(ingredientMapper.updateIngredientFromWriteRequest(
-            updatedIngredient,
-            ingredientWriteRequest
-        )).thenReturn(updatedIngredient);
+        when(ingredientMapper.mapWriteRequestToIngredient(ingredientWriteRequest)).thenReturn(ingredient);
+        when(ingredientRepository.update(id, null, ingredient)).thenReturn(1);
+        when(ingredientVariantRepository.markDefaultVariant(id, defaultVariantId)).thenReturn(0);
 
         // when
-        final var exception = catchException(() -> ingredientServiceImpl.updateIngredient(id, ingredientWriteRequest));
+        final var exception = catchException(
+            () -> ingredientServiceImpl.updateIngredient(id, null, ingredientWriteRequest)
+        );
 
         // then
         assertThat(exception).isInstanceOf(BadRequestException.class)
@@ -313,21 +1235,34 @@ class IngredientServiceImplTest {
         ingredientServiceImpl.deleteIngredient(id);
 
         // then
-        verify(ingredientRepository).deleteById(id);
+        verify(ingredientRepository).deleteAllByIdInBatch(List.of(id));
+    }
+
+    @Test
+    void deletes_ingredients() {
+        // given
+        final var ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+        // when
+        ingredientServiceImpl.deleteIngredients(ids);
+
+        // then
+        verify(ingredientRepository).deleteAllByIdInBatch(ids);
     }
 
     @Test
     void retrieves_ingredient_variants() {
         // given
         final var id = UUID.randomUUID();
-        final var ingredientVariants = Instancio.ofList(IngredientVariant.class)
+        final var ingredientVariants = Instancio.ofList(IngredientVariantProjection.class)
             .size(2)
             .create();
         final var ingredientVariantDtos = Instancio.ofList(IngredientVariantDto.class)
             .size(2)
             .create();
-        when(ingredientVariantRepository.findAllByIngredientId(any())).thenReturn(ingredientVariants);
-        when(ingredientVariantMapper.mapIngredientVariantToDto(any(IngredientVariant.class)))
+        when(ingredientReadRepository.findVersionById(id)).thenReturn(Optional.of(3L));
+        when(ingredientReadRepository.findIngredientVariantsByIngredientIds(any())).thenReturn(ingredientVariants);
+        when(ingredientVariantMapper.mapIngredientVariantToDto(any(IngredientVariantProjection.class)))
             .thenReturn(ingredientVariantDtos.get(0))
             .thenReturn(ingredientVariantDtos.get(1));
 
@@ -335,8 +1270,9 @@ class IngredientServiceImplTest {
         final var result = ingredientServiceImpl.getIngredientVariantsByIngredientId(id);
 
         // then
-        verify(ingredientVariantRepository).findAllByIngredientId(id);
-        assertThat(result).containsExactlyElementsOf(ingredientVariantDtos);
+        verify(ingredientReadRepository).findIngredientVariantsByIngredientIds(List.of(id));
+        assertThat(result.value()).containsExactlyElementsOf(ingredientVariantDtos);
+        assertThat(result.version()).isEqualTo(3);
     }
 
     @Test
@@ -350,7 +1286,8 @@ class IngredientServiceImplTest {
         final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class).create();
         final var ingredientVariantDto = Instancio.of(IngredientVariantDto.class).create();
 
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(ingredient));
+        when(ingredientRepository.incrementVersion(id)).thenReturn(1);
+        when(ingredientRepository.getReferenceById(id)).thenReturn(ingredient);
         when(ingredientVariantRepository.save(any())).thenReturn(ingredientVariant);
         when(ingredientVariantMapper.mapWriteRequestToIngredientVariant(
             ingredientVariantWriteRequest,
@@ -363,7 +1300,7 @@ class IngredientServiceImplTest {
         final var result = ingredientServiceImpl.addIngredientVariantToIngredient(id, ingredientVariantWriteRequest);
 
         // then
-        verify(ingredientRepository).findById(id);
+        verify(ingredientRepository).incrementVersion(id);
         verify(ingredientVariantRepository).save(ingredientVariant);
         assertThat(result).isEqualTo(ingredientVariantDto);
     }
@@ -376,18 +1313,16 @@ class IngredientServiceImplTest {
         final var ingredientVariant = Instancio.of(IngredientVariant.class).create();
         final var ingredientVariantDto = Instancio.of(IngredientVariantDto.class).create();
 
-        when(ingredientRepository.existsById(any())).thenReturn(true);
-        when(ingredientVariantRepository.findByIdAndIngredientId(any(), any()))
-            .thenReturn(Optional.of(ingredientVariant));
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(any(), any()))
+            .thenReturn(Optional.of(new IngredientVariantLookup(ingredientId, ingredientVariant)));
         when(ingredientVariantMapper.mapIngredientVariantToDto(ingredientVariant)).thenReturn(ingredientVariantDto);
 
         // when
         final var result = ingredientServiceImpl.getIngredientVariantById(ingredientId, ingredientVariantId);
 
         // then
-        verify(ingredientRepository).existsById(ingredientId);
-        verify(ingredientVariantRepository).findByIdAndIngredientId(ingredientVariantId, ingredientId);
-        assertThat(result).isEqualTo(ingredientVariantDto);
+        verify(ingredientVariantRepository).lookupByIdAndIngredientId(ingredientVariantId, ingredientId);
+        assertThat(result).isEqualTo(new Versioned<>(ingredientVariantDto, ingredientVariant.getVersion()));
     }
 
     @Test
@@ -395,7 +1330,8 @@ class IngredientServiceImplTest {
         // given
         final var ingredientId = UUID.randomUUID();
         final var ingredientVariantId = UUID.randomUUID();
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(false);
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(ingredientVariantId, ingredientId))
+            .thenReturn(Optional.empty());
 
         // when
         final var exception = catchException(
@@ -412,9 +1348,8 @@ class IngredientServiceImplTest {
         // given
         final var ingredientId = UUID.randomUUID();
         final var ingredientVariantId = UUID.randomUUID();
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(true);
-        when(ingredientVariantRepository.findByIdAndIngredientId(ingredientVariantId, ingredientId))
-            .thenReturn(Optional.empty());
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(ingredientVariantId, ingredientId))
+            .thenReturn(Optional.of(new IngredientVariantLookup(ingredientId, null)));
 
         // when
         final var exception = catchException(
@@ -436,10 +1371,10 @@ class IngredientServiceImplTest {
         final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class).create();
         final var ingredientVariantDto = Instancio.of(IngredientVariantDto.class).create();
 
-        when(ingredientRepository.existsById(any())).thenReturn(true);
-        when(ingredientVariantRepository.findByIdAndIngredientId(any(), any()))
-            .thenReturn(Optional.of(ingredientVariant));
-        when(ingredientVariantRepository.save(any())).thenReturn(updatedIngredientVariant);
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(any(), any()))
+            .thenReturn(Optional.of(new IngredientVariantLookup(ingredientId, ingredientVariant)));
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(ingredientVariantRepository.saveAndFlush(any())).thenReturn(updatedIngredientVariant);
         when(ingredientVariantMapper.updateIngredientVariantFromWriteRequest(
             ingredientVariant,
             ingredientVariantWriteRequest
@@ -451,14 +1386,45 @@ class IngredientServiceImplTest {
         final var result = ingredientServiceImpl.updateIngredientVariant(
             ingredientId,
             ingredientVariantId,
+            null,
             ingredientVariantWriteRequest
         );
 
         // then
-        verify(ingredientRepository).existsById(ingredientId);
-        verify(ingredientVariantRepository).findByIdAndIngredientId(ingredientVariantId, ingredientId);
-        verify(ingredientVariantRepository).save(updatedIngredientVariant);
-        assertThat(result).isEqualTo(ingredientVariantDto);
+        verify(ingredientVariantRepository).lookupByIdAndIngredientId(ingredientVariantId, ingredientId);
+        verify(ingredientRepository).incrementVersion(ingredientId);
+        verify(ingredientVariantRepository).saveAndFlush(updatedIngredientVariant);
+        assertThat(result).isEqualTo(new Versioned<>(ingredientVariantDto, updatedIngredientVariant.getVersion()));
+    }
+
+    @Test
+    void patches_ingredient_variant() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+        final var ingredientVariantId = UUID.randomUUID();
+        final var ingredientVariant = Instancio.of(IngredientVariant.class).create();
+        final var ingredientVariantPatchRequest = new IngredientVariantPatchRequest().fat(1.5);
+        final var ingredientVariantDto = Instancio.of(IngredientVariantDto.class).create();
+
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(ingredientVariantId, ingredientId))
+            .thenReturn(Optional.of(new IngredientVariantLookup(ingredientId, ingredientVariant)));
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(ingredientVariantMapper.patchIngredientVariant(ingredientVariant, ingredientVariantPatchRequest))
+            .thenReturn(ingredientVariant);
+        when(ingredientVariantRepository.saveAndFlush(ingredientVariant)).thenReturn(ingredientVariant);
+        when(ingredientVariantMapper.mapIngredientVariantToDto(ingredientVariant)).thenReturn(ingredientVariantDto);
+
+        // when
+        final var result = ingredientServiceImpl.patchIngredientVariant(
+            ingredientId,
+            ingredientVariantId,
+            ingredientVariant.getVersion(),
+            ingredientVariantPatchRequest
+        );
+
+        // then
+        verify(ingredientRepository).incrementVersion(ingredientId);
+        assertThat(result).isEqualTo(new Versioned<>(ingredientVariantDto, ingredientVariant.getVersion()));
     }
 
     @Test
@@ -468,12 +1434,14 @@ class IngredientServiceImplTest {
         final var ingredientVariantId = UUID.randomUUID();
         final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class).create();
 
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(false);
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(ingredientVariantId, ingredientId))
+            .thenReturn(Optional.empty());
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.updateIngredientVariant(
             ingredientId,
             ingredientVariantId,
+            null,
             ingredientVariantWriteRequest
         ));
 
@@ -489,14 +1457,14 @@ class IngredientServiceImplTest {
         final var ingredientVariantId = UUID.randomUUID();
         final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class).create();
 
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(true);
-        when(ingredientVariantRepository.findByIdAndIngredientId(ingredientVariantId, ingredientId))
-            .thenReturn(Optional.empty());
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(ingredientVariantId, ingredientId))
+            .thenReturn(Optional.of(new IngredientVariantLookup(ingredientId, null)));
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.updateIngredientVariant(
             ingredientId,
             ingredientVariantId,
+            null,
             ingredientVariantWriteRequest
         ));
 
@@ -505,30 +1473,165 @@ class IngredientServiceImplTest {
             .hasMessageContaining(String.format("Ingredient variant not found for id: %s", ingredientVariantId));
     }
 
+    @Test
+    void fails_to_update_ingredient_variant_since_changed() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+        final var ingredientVariantId = UUID.randomUUID();
+        final var ingredientVariant = Instancio.of(IngredientVariant.class)
+            .set(field(IngredientVariant::getVersion), 2L)
+            .create();
+        final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class).create();
+
+        when(ingredientVariantRepository.lookupByIdAndIngredientId(ingredientVariantId, ingredientId))
+            .thenReturn(Optional.of(new IngredientVariantLookup(ingredientId, ingredientVariant)));
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.updateIngredientVariant(
+            ingredientId,
+            ingredientVariantId,
+            1L,
+            ingredientVariantWriteRequest
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(PreconditionFailedException.class)
+            .hasMessageContaining(String.format("Ingredient variant has changed for id: %s", ingredientVariantId));
+        verify(ingredientRepository, never()).incrementVersion(any());
+        verify(ingredientVariantRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void replaces_ingredient_variants_by_description() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var keptIngredientVariant = Instancio.of(IngredientVariant.class)
+            .set(field(IngredientVariant::getDescription), "kept")
+            .create();
+        final var removedIngredientVariant = Instancio.of(IngredientVariant.class)
+            .set(field(IngredientVariant::getDescription), "removed")
+            .create();
+        final var addedIngredientVariant = Instancio.of(IngredientVariant.class).create();
+        final var keptWriteRequest = Instancio.of(IngredientVariantWriteRequest.class)
+            .set(field(IngredientVariantWriteRequest::getDescription), "kept")
+            .create();
+        final var addedWriteRequest = Instancio.of(IngredientVariantWriteRequest.class)
+            .set(field(IngredientVariantWriteRequest::getDescription), "added")
+            .create();
+        final var ingredientVariantDtos = Instancio.ofList(IngredientVariantDto.class)
+            .size(2)
+            .create();
+
+        when(ingredientRepository.incrementVersion(ingredientId, 3L)).thenReturn(1);
+        when(ingredientVariantRepository.findAllByIngredientId(ingredientId))
+            .thenReturn(List.of(keptIngredientVariant, removedIngredientVariant));
+        when(ingredientRepository.getReferenceById(ingredientId)).thenReturn(ingredient);
+        when(ingredientVariantMapper.mapWriteRequestToIngredientVariant(addedWriteRequest, ingredient))
+            .thenReturn(addedIngredientVariant);
+        when(ingredientReadRepository.findVersionById(ingredientId)).thenReturn(Optional.of(4L));
+        when(ingredientReadRepository.findIngredientVariantsByIngredientIds(List.of(ingredientId)))
+            .thenReturn(Instancio.ofList(IngredientVariantProjection.class).size(2).create());
+        when(ingredientVariantMapper.mapIngredientVariantToDto(any(IngredientVariantProjection.class)))
+            .thenReturn(ingredientVariantDtos.get(0))
+            .thenReturn(ingredientVariantDtos.get(1));
+
+        // when
+        final var result = ingredientServiceImpl.replaceIngredientVariants(
+            ingredientId,
+            3L,
+            List.of(addedWriteRequest, keptWriteRequest)
+        );
+
+        // then
+        verify(ingredientVariantMapper).updateIngredientVariantFromWriteRequest(
+            keptIngredientVariant,
+            keptWriteRequest
+        );
+        verify(ingredientVariantRepository).deleteAllInBatch(List.of(removedIngredientVariant));
+        verify(ingredientVariantRepository).saveAll(List.of(addedIngredientVariant));
+        verify(ingredientVariantRepository).flush();
+        assertThat(result).isEqualTo(new Versioned<>(ingredientVariantDtos, 4L));
+    }
+
+    @Test
+    void fails_to_replace_ingredient_variants_with_duplicate_descriptions() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+        final var ingredientVariantWriteRequest = Instancio.of(IngredientVariantWriteRequest.class)
+            .set(field(IngredientVariantWriteRequest::getDescription), "duplicate")
+            .create();
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.replaceIngredientVariants(
+            ingredientId,
+            null,
+            List.of(ingredientVariantWriteRequest, ingredientVariantWriteRequest)
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("Duplicate ingredient variant description: duplicate");
+        verifyNoInteractions(ingredientRepository, ingredientVariantRepository);
+    }
+
+    @Test
+    void fails_to_replace_ingredient_variants_since_changed() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+
+        when(ingredientRepository.incrementVersion(ingredientId, 3L)).thenReturn(0);
+        when(ingredientRepository.existsById(ingredientId)).thenReturn(true);
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.replaceIngredientVariants(
+            ingredientId,
+            3L,
+            List.of()
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(PreconditionFailedException.class)
+            .hasMessageContaining(String.format("Ingredient has changed for id: %s", ingredientId));
+        verifyNoInteractions(ingredientVariantRepository);
+    }
+
+    @Test
+    void fails_to_replace_ingredient_variants_since_ingredient_missing() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+
+        when(ingredientRepository.incrementVersion(ingredientId, null)).thenReturn(0);
+        when(ingredientRepository.existsById(ingredientId)).thenReturn(false);
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.replaceIngredientVariants(
+            ingredientId,
+            null,
+            List.of()
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(NotFoundException.class)
+            .hasMessageContaining(String.format("Ingredient not found for id: %s", ingredientId));
+        verifyNoInteractions(ingredientVariantRepository);
+    }
+
     @Test
     void deletes_ingredient_variant() {
         // given
         final var ingredientId = UUID.randomUUID();
         final var ingredientVariantId = UUID.randomUUID();
-        final var ingredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), ingredientId)
-            .set(
-                field(Ingredient::getIngredientVariants),
-                new ArrayList<>(List.of(Instancio.of(IngredientVariant.class)
-                    .set(field(IngredientVariant::getId), ingredientVariantId)
-                    .create()))
-            ).create();
 
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(ingredient));
-        when(ingredientRepository.save(any())).thenReturn(ingredient);
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(ingredientVariantRepository.deleteByIdAndIngredientId(ingredientVariantId, ingredientId)).thenReturn(1);
 
         // when
         ingredientServiceImpl.deleteIngredientVariant(ingredientId, ingredientVariantId);
 
         // then
-        verify(ingredientRepository).findById(ingredientId);
-        verify(ingredientRepository).save(ingredient);
-        assertThat(ingredient.getIngredientVariants()).isEmpty();
+        verify(ingredientRepository).incrementVersion(ingredientId);
+        verify(ingredientVariantRepository).deleteByIdAndIngredientId(ingredientVariantId, ingredientId);
     }
 
     @Test
@@ -537,7 +1640,7 @@ class IngredientServiceImplTest {
         final var ingredientId = UUID.randomUUID();
         final var ingredientVariantId = UUID.randomUUID();
 
-        when(ingredientRepository.findById(any())).thenReturn(Optional.empty());
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(0);
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.deleteIngredientVariant(
@@ -555,12 +1658,9 @@ class IngredientServiceImplTest {
         // given
         final var ingredientId = UUID.randomUUID();
         final var ingredientVariantId = UUID.randomUUID();
-        final var ingredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), ingredientId)
-            .set(field(Ingredient::getIngredientVariants), new ArrayList<>())
-            .create();
 
-        when(ingredientRepository.findById(ingredientId)).thenReturn(Optional.of(ingredient));
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(ingredientVariantRepository.deleteByIdAndIngredientId(ingredientVariantId, ingredientId)).thenReturn(0);
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.deleteIngredientVariant(
@@ -574,21 +1674,21 @@ class IngredientServiceImplTest {
                 "Ingredient variant not found for id: %s",
                 ingredientVariantId
             ));
-        verify(ingredientRepository, never()).save(any());
     }
 
     @Test
     void retrieves_custom_units() {
         // given
         final var id = UUID.randomUUID();
-        final var customUnits = Instancio.ofList(CustomUnit.class)
+        final var customUnits = Instancio.ofList(CustomUnitProjection.class)
             .size(2)
             .create();
         final var customUnitDtos = Instancio.ofList(CustomUnitDto.class)
             .size(2)
             .create();
-        when(customUnitRepository.findAllByIngredientId(any())).thenReturn(customUnits);
-        when(customUnitMapper.mapCustomUnitToDto(any(CustomUnit.class)))
+        when(ingredientReadRepository.findVersionById(id)).thenReturn(Optional.of(3L));
+        when(ingredientReadRepository.findCustomUnitsByIngredientIds(any())).thenReturn(customUnits);
+        when(customUnitMapper.mapCustomUnitToDto(any(CustomUnitProjection.class)))
             .thenReturn(customUnitDtos.get(0))
             .thenReturn(customUnitDtos.get(1));
 
@@ -596,8 +1696,9 @@ class IngredientServiceImplTest {
         final var result = ingredientServiceImpl.getCustomUnitsByIngredientId(id);
 
         // then
-        verify(customUnitRepository).findAllByIngredientId(id);
-        assertThat(result).containsExactlyElementsOf(customUnitDtos);
+        verify(ingredientReadRepository).findCustomUnitsByIngredientIds(List.of(id));
+        assertThat(result.value()).containsExactlyElementsOf(customUnitDtos);
+        assertThat(result.version()).isEqualTo(3);
     }
 
     @Test
@@ -611,7 +1712,8 @@ class IngredientServiceImplTest {
         final var customUnitWriteRequest = Instancio.of(CustomUnitWriteRequest.class).create();
         final var customUnitDto = Instancio.of(CustomUnitDto.class).create();
 
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(ingredient));
+        when(ingredientRepository.incrementVersion(id)).thenReturn(1);
+        when(ingredientRepository.getReferenceById(id)).thenReturn(ingredient);
         when(customUnitRepository.save(any())).thenReturn(customUnit);
         when(customUnitMapper.mapWriteRequestToCustomUnit(customUnitWriteRequest, ingredient))
             .thenReturn(customUnit);
@@ -621,7 +1723,7 @@ class IngredientServiceImplTest {
         final var result = ingredientServiceImpl.addCustomUnitToIngredient(id, customUnitWriteRequest);
 
         // then
-        verify(ingredientRepository).findById(id);
+        verify(ingredientRepository).incrementVersion(id);
         verify(customUnitRepository).save(customUnit);
         assertThat(result).isEqualTo(customUnitDto);
     }
@@ -634,17 +1736,16 @@ class IngredientServiceImplTest {
         final var customUnit = Instancio.of(CustomUnit.class).create();
         final var customUnitDto = Instancio.of(CustomUnitDto.class).create();
 
-        when(ingredientRepository.existsById(any())).thenReturn(true);
-        when(customUnitRepository.findByIdAndIngredientId(any(), any())).thenReturn(Optional.of(customUnit));
+        when(customUnitRepository.lookupByIdAndIngredientId(any(), any()))
+            .thenReturn(Optional.of(new CustomUnitLookup(ingredientId, customUnit)));
         when(customUnitMapper.mapCustomUnitToDto(customUnit)).thenReturn(customUnitDto);
 
         // when
         final var result = ingredientServiceImpl.getCustomUnitById(ingredientId, customUnitId);
 
         // then
-        verify(ingredientRepository).existsById(ingredientId);
-        verify(customUnitRepository).findByIdAndIngredientId(customUnitId, ingredientId);
-        assertThat(result).isEqualTo(customUnitDto);
+        verify(customUnitRepository).lookupByIdAndIngredientId(customUnitId, ingredientId);
+        assertThat(result).isEqualTo(new Versioned<>(customUnitDto, customUnit.getVersion()));
     }
 
     @Test
@@ -652,7 +1753,7 @@ class IngredientServiceImplTest {
         // given
         final var ingredientId = UUID.randomUUID();
         final var customUnitId = UUID.randomUUID();
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(false);
+        when(customUnitRepository.lookupByIdAndIngredientId(customUnitId, ingredientId)).thenReturn(Optional.empty());
 
         // when
         final var exception = catchException(
@@ -669,8 +1770,8 @@ class IngredientServiceImplTest {
         // given
         final var ingredientId = UUID.randomUUID();
         final var customUnitId = UUID.randomUUID();
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(true);
-        when(customUnitRepository.findByIdAndIngredientId(customUnitId, ingredientId)).thenReturn(Optional.empty());
+        when(customUnitRepository.lookupByIdAndIngredientId(customUnitId, ingredientId))
+            .thenReturn(Optional.of(new CustomUnitLookup(ingredientId, null)));
 
         // when
         final var exception = catchException(
@@ -692,9 +1793,10 @@ class IngredientServiceImplTest {
         final var customUnitWriteRequest = Instancio.of(CustomUnitWriteRequest.class).create();
         final var customUnitDto = Instancio.of(CustomUnitDto.class).create();
 
-        when(ingredientRepository.existsById(any())).thenReturn(true);
-        when(customUnitRepository.findByIdAndIngredientId(any(), any())).thenReturn(Optional.of(customUnit));
-        when(customUnitRepository.save(any())).thenReturn(updatedCustomUnit);
+        when(customUnitRepository.lookupByIdAndIngredientId(any(), any()))
+            .thenReturn(Optional.of(new CustomUnitLookup(ingredientId, customUnit)));
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(customUnitRepository.saveAndFlush(any())).thenReturn(updatedCustomUnit);
         when(customUnitMapper.updateCustomUnitFromWriteRequest(
             customUnit,
             customUnitWriteRequest
@@ -706,14 +1808,15 @@ class IngredientServiceImplTest {
         final var result = ingredientServiceImpl.updateCustomUnit(
             ingredientId,
             customUnitId,
+            null,
             customUnitWriteRequest
         );
 
         // then
-        verify(ingredientRepository).existsById(ingredientId);
-        verify(customUnitRepository).findByIdAndIngredientId(customUnitId, ingredientId);
-        verify(customUnitRepository).save(updatedCustomUnit);
-        assertThat(result).isEqualTo(customUnitDto);
+        verify(customUnitRepository).lookupByIdAndIngredientId(customUnitId, ingredientId);
+        verify(ingredientRepository).incrementVersion(ingredientId);
+        verify(customUnitRepository).saveAndFlush(updatedCustomUnit);
+        assertThat(result).isEqualTo(new Versioned<>(customUnitDto, updatedCustomUnit.getVersion()));
     }
 
     @Test
@@ -723,12 +1826,13 @@ class IngredientServiceImplTest {
         final var customUnitId = UUID.randomUUID();
         final var customUnitWriteRequest = Instancio.of(CustomUnitWriteRequest.class).create();
 
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(false);
+        when(customUnitRepository.lookupByIdAndIngredientId(customUnitId, ingredientId)).thenReturn(Optional.empty());
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.updateCustomUnit(
             ingredientId,
             customUnitId,
+            null,
             customUnitWriteRequest
         ));
 
@@ -744,13 +1848,14 @@ class IngredientServiceImplTest {
         final var customUnitId = UUID.randomUUID();
         final var customUnitWriteRequest = Instancio.of(CustomUnitWriteRequest.class).create();
 
-        when(ingredientRepository.existsById(ingredientId)).thenReturn(true);
-        when(customUnitRepository.findByIdAndIngredientId(customUnitId, ingredientId)).thenReturn(Optional.empty());
+        when(customUnitRepository.lookupByIdAndIngredientId(customUnitId, ingredientId))
+            .thenReturn(Optional.of(new CustomUnitLookup(ingredientId, null)));
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.updateCustomUnit(
             ingredientId,
             customUnitId,
+            null,
             customUnitWriteRequest
         ));
 
@@ -759,30 +1864,78 @@ class IngredientServiceImplTest {
             .hasMessageContaining(String.format("Custom unit not found for id: %s", customUnitId));
     }
 
+    @Test
+    void patches_custom_unit() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+        final var customUnitId = UUID.randomUUID();
+        final var customUnit = Instancio.of(CustomUnit.class).create();
+        final var customUnitPatchRequest = new CustomUnitPatchRequest().customUnitToConversionUnitFactor(null);
+        final var customUnitDto = Instancio.of(CustomUnitDto.class).create();
+
+        when(customUnitRepository.lookupByIdAndIngredientId(customUnitId, ingredientId))
+            .thenReturn(Optional.of(new CustomUnitLookup(ingredientId, customUnit)));
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(customUnitMapper.patchCustomUnit(customUnit, customUnitPatchRequest)).thenReturn(customUnit);
+        when(customUnitRepository.saveAndFlush(customUnit)).thenReturn(customUnit);
+        when(customUnitMapper.mapCustomUnitToDto(customUnit)).thenReturn(customUnitDto);
+
+        // when
+        final var result = ingredientServiceImpl.patchCustomUnit(
+            ingredientId,
+            customUnitId,
+            null,
+            customUnitPatchRequest
+        );
+
+        // then
+        verify(ingredientRepository).incrementVersion(ingredientId);
+        assertThat(result).isEqualTo(new Versioned<>(customUnitDto, customUnit.getVersion()));
+    }
+
+    @Test
+    void fails_to_update_custom_unit_since_changed() {
+        // given
+        final var ingredientId = UUID.randomUUID();
+        final var customUnitId = UUID.randomUUID();
+        final var customUnit = Instancio.of(CustomUnit.class)
+            .set(field(CustomUnit::getVersion), 2L)
+            .create();
+        final var customUnitWriteRequest = Instancio.of(CustomUnitWriteRequest.class).create();
+
+        when(customUnitRepository.lookupByIdAndIngredientId(customUnitId, ingredientId))
+            .thenReturn(Optional.of(new CustomUnitLookup(ingredientId, customUnit)));
+
+        // when
+        final var exception = catchException(() -> ingredientServiceImpl.updateCustomUnit(
+            ingredientId,
+            customUnitId,
+            1L,
+            customUnitWriteRequest
+        ));
+
+        // then
+        assertThat(exception).isInstanceOf(PreconditionFailedException.class)
+            .hasMessageContaining(String.format("Custom unit has changed for id: %s", customUnitId));
+        verify(ingredientRepository, never()).incrementVersion(any());
+        verify(customUnitRepository, never()).saveAndFlush(any());
+    }
+
     @Test
     void deletes_custom_unit() {
         // given
         final var ingredientId = UUID.randomUUID();
         final var customUnitId = UUID.randomUUID();
-        final var ingredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), ingredientId)
-            .set(
-                field(Ingredient::getCustomUnits),
-                new ArrayList<>(List.of(Instancio.of(CustomUnit.class)
-                    .set(field(CustomUnit::getId), customUnitId)
-                    .create()))
-            ).create();
 
-        when(ingredientRepository.findById(any())).thenReturn(Optional.of(ingredient));
-        when(ingredientRepository.save(any())).thenReturn(ingredient);
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(customUnitRepository.deleteByIdAndIngredientId(customUnitId, ingredientId)).thenReturn(1);
 
         // when
         ingredientServiceImpl.deleteCustomUnit(ingredientId, customUnitId);
 
         // then
-        verify(ingredientRepository).findById(ingredientId);
-        verify(ingredientRepository).save(ingredient);
-        assertThat(ingredient.getCustomUnits()).isEmpty();
+        verify(ingredientRepository).incrementVersion(ingredientId);
+        verify(customUnitRepository).deleteByIdAndIngredientId(customUnitId, ingredientId);
     }
 
     @Test
@@ -791,7 +1944,7 @@ class IngredientServiceImplTest {
         final var ingredientId = UUID.randomUUID();
         final var customUnitId = UUID.randomUUID();
 
-        when(ingredientRepository.findById(any())).thenReturn(Optional.empty());
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(0);
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.deleteCustomUnit(
@@ -809,12 +1962,9 @@ class IngredientServiceImplTest {
         // given
         final var ingredientId = UUID.randomUUID();
         final var customUnitId = UUID.randomUUID();
-        final var ingredient = Instancio.of(Ingredient.class)
-            .set(field(Ingredient::getId), ingredientId)
-            .set(field(Ingredient::getCustomUnits), new ArrayList<>())
-            .create();
 
-        when(ingredientRepository.findById(ingredientId)).thenReturn(Optional.of(ingredient));
+        when(ingredientRepository.incrementVersion(ingredientId)).thenReturn(1);
+        when(customUnitRepository.deleteByIdAndIngredientId(customUnitId, ingredientId)).thenReturn(0);
 
         // when
         final var exception = catchException(() -> ingredientServiceImpl.deleteCustomUnit(
@@ -824,7 +1974,9 @@ class IngredientServiceImplTest {
 
         // then
         assertThat(exception).isInstanceOf(NotFoundException.class)
-            .hasMessageContaining(String.format("Custom unit not found for id: %s", customUnitId));
-        verify(ingredientRepository, never()).save(any());
+            .hasMessageContaining(String.format(
+                "Custom unit not found for id: %s",
+                customUnitId
+            ));
     }
 }
@@ -3,12 +3,14 @@ package net.fuzzyhome.home.services.mappers;
 import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.Ingredient;
 import net.fuzzyhome.home.database.enums.GenericUnit;
+import net.fuzzyhome.home.database.projections.CustomUnitProjection;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.openapitools.model.CustomUnitDto;
+import org.openapitools.model.CustomUnitPatchRequest;
 import org.openapitools.model.CustomUnitWriteRequest;
 import org.openapitools.model.GenericUnitDto;
 
@@ -75,6 +77,24 @@ class CustomUnitMapperTest {
             .isEqualTo(GenericUnitDto.GRAM);
     }
 
+    @Test
+    void maps_projection_to_dto() {
+        // given
+        final var customUnit = Instancio.of(CustomUnitProjection.class)
+            .set(field(CustomUnitProjection::conversionUnit), GenericUnit.GRAM)
+            .create();
+
+        // when
+        final var result = customUnitMapper.mapCustomUnitToDto(customUnit);
+
+        // then
+        assertThat(result.getId()).isEqualTo(customUnit.id());
+        assertThat(result.getName()).isEqualTo(customUnit.name());
+        assertThat(result.getCustomUnitToConversionUnitFactor())
+            .isEqualTo(customUnit.customUnitToConversionUnitFactor());
+        assertThat(result.getConversionUnit()).isEqualTo(GenericUnitDto.GRAM);
+    }
+
     @Test
     void maps_to_entity_field_id() {
         // given
@@ -192,4 +212,38 @@ class CustomUnitMapperTest {
         assertThat(result).extracting(CustomUnit::getConversionUnit)
             .isEqualTo(GenericUnit.KILOGRAM);
     }
+
+    @Test
+    void patches_entity_fields_present_in_patch_only() {
+        // given
+        final var customUnit = Instancio.of(CustomUnit.class)
+            .set(field(CustomUnit::getConversionUnit), GenericUnit.CUP)
+            .create();
+        final var name = customUnit.getName();
+        final var customUnitPatchRequest = new CustomUnitPatchRequest()
+            .conversionUnit(GenericUnitDto.KILOGRAM);
+
+        // when
+        final var result = customUnitMapper.patchCustomUnit(customUnit, customUnitPatchRequest);
+
+        // then
+        assertThat(result.getConversionUnit()).isEqualTo(GenericUnit.KILOGRAM);
+        assertThat(result.getName()).isEqualTo(name);
+        assertThat(result.getCustomUnitToConversionUnitFactor()).isNotNull();
+    }
+
+    @Test
+    void clears_entity_fields_set_to_null_in_patch() {
+        // given
+        final var customUnit = Instancio.of(CustomUnit.class).create();
+        final var customUnitPatchRequest = new CustomUnitPatchRequest()
+            .customUnitToConversionUnitFactor(null);
+
+        // when
+        final var result = customUnitMapper.patchCustomUnit(customUnit, customUnitPatchRequest);
+
+        // then
+        assertThat(result.getCustomUnitToConversionUnitFactor()).isNull();
+        assertThat(result.getConversionUnit()).isNotNull();
+    }
 }
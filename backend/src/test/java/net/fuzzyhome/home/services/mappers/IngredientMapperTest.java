@@ -1,10 +1,14 @@
 package net.fuzzyhome.home.services.mappers;
 
+import java.util.List;
 import net.fuzzyhome.home.database.entities.CustomUnit;
 import net.fuzzyhome.home.database.entities.Ingredient;
 import net.fuzzyhome.home.database.entities.IngredientVariant;
 import net.fuzzyhome.home.database.enums.VolumeUnit;
 import net.fuzzyhome.home.database.enums.WeightUnit;
+import net.fuzzyhome.home.database.projections.CustomUnitProjection;
+import net.fuzzyhome.home.database.projections.IngredientProjection;
+import net.fuzzyhome.home.database.projections.IngredientVariantProjection;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.Test;
@@ -13,7 +17,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.openapitools.model.CustomUnitDto;
+import org.openapitools.model.IngredientBatchWriteRequest;
 import org.openapitools.model.IngredientDto;
+import org.openapitools.model.IngredientPatchRequest;
 import org.openapitools.model.IngredientVariantDto;
 import org.openapitools.model.IngredientWriteRequest;
 import org.openapitools.model.VolumeUnitDto;
@@ -22,6 +28,7 @@ import org.openapitools.model.WeightUnitDto;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.instancio.Select.field;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -117,7 +124,7 @@ class IngredientMapperTest {
             )
             .create();
         final var ingredientVariantDto = Instancio.of(IngredientVariantDto.class).create();
-        when(ingredientVariantMapper.mapIngredientVariantToDto(any())).thenReturn(ingredientVariantDto);
+        when(ingredientVariantMapper.mapIngredientVariantToDto(any(IngredientVariant.class))).thenReturn(ingredientVariantDto);
 
         // when
         final var result = ingredientMapper.mapIngredientToDto(ingredient);
@@ -142,7 +149,7 @@ class IngredientMapperTest {
             )
             .create();
         final var customUnitDto = Instancio.of(CustomUnitDto.class).create();
-        when(customUnitMapper.mapCustomUnitToDto(any())).thenReturn(customUnitDto);
+        when(customUnitMapper.mapCustomUnitToDto(any(CustomUnit.class))).thenReturn(customUnitDto);
 
         // when
         final var result = ingredientMapper.mapIngredientToDto(ingredient);
@@ -155,6 +162,60 @@ class IngredientMapperTest {
             .containsExactly(customUnitDto, customUnitDto);
     }
 
+    @Test
+    void maps_to_dto_with_separately_loaded_children() {
+        // given
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var ingredientVariant = Instancio.of(IngredientVariant.class).create();
+        final var customUnit = Instancio.of(CustomUnit.class).create();
+        final var ingredientVariantDto = Instancio.of(IngredientVariantDto.class).create();
+        final var customUnitDto = Instancio.of(CustomUnitDto.class).create();
+        when(ingredientVariantMapper.mapIngredientVariantToDto(ingredientVariant)).thenReturn(ingredientVariantDto);
+        when(customUnitMapper.mapCustomUnitToDto(customUnit)).thenReturn(customUnitDto);
+
+        // when
+        final var result = ingredientMapper.mapIngredientToDto(
+            ingredient,
+            List.of(ingredientVariant),
+            List.of(customUnit)
+        );
+
+        // then
+        assertThat(result.getIngredientVariants()).containsExactly(ingredientVariantDto);
+        assertThat(result.getCustomUnits()).containsExactly(customUnitDto);
+    }
+
+    @Test
+    void maps_projection_to_dto() {
+        // given
+        final var ingredient = Instancio.of(IngredientProjection.class)
+            .set(field(IngredientProjection::conversionWeightUnit), WeightUnit.GRAM)
+            .set(field(IngredientProjection::conversionVolumeUnit), VolumeUnit.MILLILITER)
+            .create();
+        final var ingredientVariant = Instancio.of(IngredientVariantProjection.class).create();
+        final var customUnit = Instancio.of(CustomUnitProjection.class).create();
+        final var ingredientVariantDto = Instancio.of(IngredientVariantDto.class).create();
+        final var customUnitDto = Instancio.of(CustomUnitDto.class).create();
+        when(ingredientVariantMapper.mapIngredientVariantToDto(ingredientVariant)).thenReturn(ingredientVariantDto);
+        when(customUnitMapper.mapCustomUnitToDto(customUnit)).thenReturn(customUnitDto);
+
+        // when
+        final var result = ingredientMapper.mapIngredientToDto(
+            ingredient,
+            List.of(ingredientVariant),
+            List.of(customUnit)
+        );
+
+        // then
+        assertThat(result.getId()).isEqualTo(ingredient.id());
+        assertThat(result.getName()).isEqualTo(ingredient.name());
+        assertThat(result.getWeightToVolumeConversionFactor()).isEqualTo(ingredient.weightToVolumeConversionFactor());
+        assertThat(result.getConversionWeightUnit()).isEqualTo(WeightUnitDto.GRAM);
+        assertThat(result.getConversionVolumeUnit()).isEqualTo(VolumeUnitDto.MILLILITER);
+        assertThat(result.getIngredientVariants()).containsExactly(ingredientVariantDto);
+        assertThat(result.getCustomUnits()).containsExactly(customUnitDto);
+    }
+
     @Test
     void maps_to_entity_field_id() {
         // given
@@ -248,6 +309,51 @@ class IngredientMapperTest {
         assertThat(result.getCustomUnits()).isNullOrEmpty();
     }
 
+    @Test
+    void maps_batch_item_to_entity_with_children() {
+        // given
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .generate(field(IngredientBatchWriteRequest::getIngredientVariants), gen -> gen.collection().size(2))
+            .generate(field(IngredientBatchWriteRequest::getCustomUnits), gen -> gen.collection().size(1))
+            .create();
+        final var ingredientVariant = Instancio.of(IngredientVariant.class).create();
+        final var customUnit = Instancio.of(CustomUnit.class).create();
+        when(ingredientVariantMapper.mapWriteRequestToIngredientVariant(any(), any())).thenReturn(ingredientVariant);
+        when(customUnitMapper.mapWriteRequestToCustomUnit(any(), any())).thenReturn(customUnit);
+
+        // when
+        final var result = ingredientMapper.mapBatchWriteRequestToIngredient(ingredientBatchWriteRequest);
+
+        // then
+        assertThat(result.getName()).isEqualTo(ingredientBatchWriteRequest.getIngredient().getName());
+        assertThat(result.getIngredientVariants()).containsExactly(ingredientVariant, ingredientVariant);
+        assertThat(result.getCustomUnits()).containsExactly(customUnit);
+        verify(ingredientVariantMapper).mapWriteRequestToIngredientVariant(
+            ingredientBatchWriteRequest.getIngredientVariants().getFirst(),
+            result
+        );
+        verify(customUnitMapper).mapWriteRequestToCustomUnit(
+            ingredientBatchWriteRequest.getCustomUnits().getFirst(),
+            result
+        );
+    }
+
+    @Test
+    void maps_batch_item_to_entity_without_children() {
+        // given
+        final var ingredientBatchWriteRequest = Instancio.of(IngredientBatchWriteRequest.class)
+            .set(field(IngredientBatchWriteRequest::getIngredientVariants), null)
+            .set(field(IngredientBatchWriteRequest::getCustomUnits), null)
+            .create();
+
+        // when
+        final var result = ingredientMapper.mapBatchWriteRequestToIngredient(ingredientBatchWriteRequest);
+
+        // then
+        assertThat(result.getIngredientVariants()).isEmpty();
+        assertThat(result.getCustomUnits()).isEmpty();
+    }
+
     @Test
     void updates_entity_field_name() {
         // given
@@ -343,4 +449,38 @@ class IngredientMapperTest {
         // then
         assertThat(result.getCustomUnits()).isSameAs(customUnits);
     }
+
+    @Test
+    void patches_entity_fields_present_in_patch_only() {
+        // given
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var weightToVolumeConversionFactor = ingredient.getWeightToVolumeConversionFactor();
+        final var ingredientPatchRequest = new IngredientPatchRequest()
+            .name("name");
+
+        // when
+        final var result = ingredientMapper.patchIngredient(ingredient, ingredientPatchRequest);
+
+        // then
+        assertThat(result.getName()).isEqualTo("name");
+        assertThat(result.getWeightToVolumeConversionFactor()).isEqualTo(weightToVolumeConversionFactor);
+    }
+
+    @Test
+    void clears_entity_fields_set_to_null_in_patch() {
+        // given
+        final var ingredient = Instancio.of(Ingredient.class).create();
+        final var name = ingredient.getName();
+        final var ingredientPatchRequest = new IngredientPatchRequest()
+            .conversionWeightUnit(null)
+            .conversionVolumeUnit(null);
+
+        // when
+        final var result = ingredientMapper.patchIngredient(ingredient, ingredientPatchRequest);
+
+        // then
+        assertThat(result.getConversionWeightUnit()).isNull();
+        assertThat(result.getConversionVolumeUnit()).isNull();
+        assertThat(result.getName()).isEqualTo(name);
+    }
 }
@@ -3,6 +3,7 @@ package net.fuzzyhome.home.services.mappers;
 import net.fuzzyhome.home.database.entities.Ingredient;
 import net.fuzzyhome.home.database.entities.IngredientVariant;
 import net.fuzzyhome.home.database.enums.GenericUnit;
+import net.fuzzyhome.home.database.projections.IngredientVariantProjection;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,6 +11,7 @@ import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.openapitools.model.GenericUnitDto;
 import org.openapitools.model.IngredientVariantDto;
+import org.openapitools.model.IngredientVariantPatchRequest;
 import org.openapitools.model.IngredientVariantWriteRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -179,6 +181,31 @@ class IngredientVariantMapperTest {
             .isEqualTo(ingredientVariant.getSugar());
     }
 
+    @Test
+    void maps_projection_to_dto() {
+        // given
+        final var ingredientVariant = Instancio.of(IngredientVariantProjection.class)
+            .set(field(IngredientVariantProjection::unit), GenericUnit.LITER)
+            .create();
+
+        // when
+        final var result = ingredientVariantMapper.mapIngredientVariantToDto(ingredientVariant);
+
+        // then
+        assertThat(result.getId()).isEqualTo(ingredientVariant.id());
+        assertThat(result.getDescription()).isEqualTo(ingredientVariant.description());
+        assertThat(result.getDefaultVariant()).isEqualTo(ingredientVariant.defaultVariant());
+        assertThat(result.getUnit()).isEqualTo(GenericUnitDto.LITER);
+        assertThat(result.getServingSize()).isEqualTo(ingredientVariant.servingSize());
+        assertThat(result.getCalories()).isEqualTo(ingredientVariant.calories());
+        assertThat(result.getCarbohydrate()).isEqualTo(ingredientVariant.carbohydrate());
+        assertThat(result.getFat()).isEqualTo(ingredientVariant.fat());
+        assertThat(result.getProtein()).isEqualTo(ingredientVariant.protein());
+        assertThat(result.getSaturatedFat()).isEqualTo(ingredientVariant.saturatedFat());
+        assertThat(result.getSodium()).isEqualTo(ingredientVariant.sodium());
+        assertThat(result.getSugar()).isEqualTo(ingredientVariant.sugar());
+    }
+
     @Test
     void maps_to_entity_field_id() {
         // given
@@ -556,4 +583,45 @@ class IngredientVariantMapperTest {
             .isEqualTo(ingredientVariantWriteRequest.getSugar());
     }
 
+
+    @Test
+    void patches_entity_fields_present_in_patch_only() {
+        // given
+        final var ingredientVariant = Instancio.of(IngredientVariant.class).create();
+        final var description = ingredientVariant.getDescription();
+        final var calories = ingredientVariant.getCalories();
+        final var ingredientVariantPatchRequest = new IngredientVariantPatchRequest()
+            .fat(12.5);
+
+        // when
+        final var result = ingredientVariantMapper.patchIngredientVariant(
+            ingredientVariant,
+            ingredientVariantPatchRequest
+        );
+
+        // then
+        assertThat(result.getFat()).isEqualTo(12.5);
+        assertThat(result.getDescription()).isEqualTo(description);
+        assertThat(result.getCalories()).isEqualTo(calories);
+    }
+
+    @Test
+    void clears_entity_fields_set_to_null_in_patch() {
+        // given
+        final var ingredientVariant = Instancio.of(IngredientVariant.class).create();
+        final var ingredientVariantPatchRequest = new IngredientVariantPatchRequest()
+            .unit(null)
+            .sodium(null);
+
+        // when
+        final var result = ingredientVariantMapper.patchIngredientVariant(
+            ingredientVariant,
+            ingredientVariantPatchRequest
+        );
+
+        // then
+        assertThat(result.getUnit()).isNull();
+        assertThat(result.getSodium()).isNull();
+        assertThat(result.getSugar()).isNotNull();
+    }
 }